@@ -34,6 +34,16 @@ public class BEncodeBenchmark {
         blackhole.consume(NodeFactory.decode(ctx.dataBDict));
     }
 
+    @Benchmark
+    public void decodeFactoryStream(Blackhole blackhole, Context ctx) throws IOException {
+        blackhole.consume(NodeFactory.decode(new ByteArrayInputStream(ctx.dataBDict)));
+    }
+
+    @Benchmark
+    public void encodeBInteger(Blackhole blackhole, Context ctx) {
+        blackhole.consume(NodeFactory.encode(ctx.nodeBInteger));
+    }
+
     @Benchmark
     public void decodeBInteger(Blackhole blackhole, Context ctx) throws IOException {
         blackhole.consume(BInteger.of(new ByteArrayInputStream(ctx.dataBInteger)));
@@ -54,9 +64,27 @@ public class BEncodeBenchmark {
         blackhole.consume(BDict.of(new ByteArrayInputStream(ctx.dataBDict)));
     }
 
+    @Benchmark
+    public void buildBDict(Blackhole blackhole) {
+        // similar to the response of a tracker to an announce
+        BList.Builder peers = BList.builder(50);
+        for (int i = 0; i < 50; i++) {
+            peers.add(BDict.builder(2)
+                .put("ip", BString.of("10.0.0." + i))
+                .put("port", BInteger.of(6881 + i))
+                .build());
+        }
+        blackhole.consume(BDict.builder(3)
+            .put("complete", BInteger.of(42))
+            .put("interval", BInteger.of(1800))
+            .put("peers", peers.build())
+            .build());
+    }
+
     @State(Scope.Benchmark)
     public static class Context {
         private BNode<?> nodeBDict;
+        private BNode<?> nodeBInteger;
         private byte[] dataBDict;
         private byte[] dataBInteger;
         private byte[] dataBString;
@@ -80,8 +108,9 @@ public class BEncodeBenchmark {
                 nodeBDict.write(bos);
                 dataBDict = bos.toByteArray();
             }
+            nodeBInteger = BInteger.of(1868487645L);
             try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-                BInteger.of(1868487645L).write(bos);
+                nodeBInteger.write(bos);
                 dataBInteger = bos.toByteArray();
             }
             try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
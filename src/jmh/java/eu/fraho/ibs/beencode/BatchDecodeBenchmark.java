@@ -0,0 +1,72 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.ibs.beencode;
+
+import eu.fraho.libs.beencode.BDict;
+import eu.fraho.libs.beencode.BInteger;
+import eu.fraho.libs.beencode.BString;
+import eu.fraho.libs.beencode.NodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+@SuppressWarnings("unused")
+public class BatchDecodeBenchmark {
+    @Benchmark
+    public void decodeSequential(Blackhole blackhole, Context ctx) {
+        for (byte[] data : ctx.batch) {
+            blackhole.consume(NodeFactory.decode(data));
+        }
+    }
+
+    @Benchmark
+    public void decodeAll(Blackhole blackhole, Context ctx) {
+        blackhole.consume(NodeFactory.decodeAll(ctx.batch, ctx.pool));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Context {
+        @Param({"1", "2", "4", "8"})
+        private int threads;
+        private List<byte[]> batch;
+        private ForkJoinPool pool;
+
+        @Setup
+        public void setup() throws IOException {
+            byte[] torrent = Files.readAllBytes(Paths.get("src", "test", "resources", "data", "debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+            // mostly small messages, like tracker responses, and a few large torrents in between
+            batch = new ArrayList<>();
+            for (int i = 0; i < 10_000; i++) {
+                if (i % 1000 == 0) {
+                    batch.add(torrent);
+                } else {
+                    batch.add(NodeFactory.encode(BDict.of(
+                        BString.of("complete"), BInteger.of(i),
+                        BString.of("interval"), BInteger.of(1800),
+                        BString.of("peers"), BString.of(new byte[6 * (i % 50)]))));
+                }
+            }
+            pool = new ForkJoinPool(threads);
+        }
+
+        @TearDown
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+}
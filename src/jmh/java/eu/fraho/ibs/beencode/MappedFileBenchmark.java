@@ -0,0 +1,89 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.ibs.beencode;
+
+import eu.fraho.libs.beencode.BDict;
+import eu.fraho.libs.beencode.BList;
+import eu.fraho.libs.beencode.BNode;
+import eu.fraho.libs.beencode.NodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+@SuppressWarnings("unused")
+public class MappedFileBenchmark {
+    @Benchmark
+    public void decodeInputStream(Blackhole blackhole, Context ctx) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(ctx.file))) {
+            blackhole.consume(NodeFactory.decode(is));
+        }
+    }
+
+    @Benchmark
+    public void decodeReadAllBytes(Blackhole blackhole, Context ctx) throws IOException {
+        blackhole.consume(NodeFactory.decode(Files.readAllBytes(ctx.file)));
+    }
+
+    @Benchmark
+    public void decodeReadAllBytesShared(Blackhole blackhole, Context ctx) throws IOException {
+        byte[] data = Files.readAllBytes(ctx.file);
+        blackhole.consume(NodeFactory.decodeShared(data, 0, data.length));
+    }
+
+    @Benchmark
+    public void decodeReadAllBytesLazy(Blackhole blackhole, Context ctx) throws IOException {
+        BList list = (BList) NodeFactory.decodeLazy(Files.readAllBytes(ctx.file));
+        // typical access pattern, only a single field of each torrent is needed
+        for (BNode<?> torrent : list) {
+            blackhole.consume(((BDict) torrent).<BDict>get("info").get("name"));
+        }
+    }
+
+    @Benchmark
+    public void decodeMapped(Blackhole blackhole, Context ctx) throws IOException {
+        blackhole.consume(NodeFactory.decode(ctx.file));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Context {
+        // number of copies of the torrent within the file, 1024 copies are about 75 MiB
+        @Param({"1", "64", "1024"})
+        private int scale;
+        private Path file;
+
+        @Setup
+        public void setup() throws IOException {
+            BNode<?> torrent = NodeFactory.decode(Paths.get("src", "test", "resources", "data", "debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+            BNode<?>[] copies = new BNode<?>[scale];
+            Arrays.fill(copies, torrent);
+
+            file = Files.createTempFile("beencode-benchmark", ".dat");
+            try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+                BList.of(copies).write(os);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.delete(file);
+        }
+    }
+}
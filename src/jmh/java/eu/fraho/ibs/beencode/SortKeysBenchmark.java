@@ -0,0 +1,42 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.ibs.beencode;
+
+import eu.fraho.libs.beencode.BString;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Random;
+
+@SuppressWarnings("unused")
+public class SortKeysBenchmark {
+    @Benchmark
+    public void sortKeys(Blackhole blackhole, Context ctx) {
+        BString[] keys = ctx.keys.clone();
+        Arrays.sort(keys);
+        blackhole.consume(keys);
+    }
+
+    @State(Scope.Benchmark)
+    public static class Context {
+        private BString[] keys;
+
+        @Setup
+        public void setup() {
+            // keys with a common prefix, like the file names of a large torrent
+            Random random = new Random(42);
+            keys = new BString[100_000];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = BString.of("data/files/part-" + Long.toHexString(random.nextLong()));
+            }
+        }
+    }
+}
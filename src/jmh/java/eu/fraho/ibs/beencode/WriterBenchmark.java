@@ -0,0 +1,75 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.ibs.beencode;
+
+import eu.fraho.libs.beencode.BNode;
+import eu.fraho.libs.beencode.BencodeWriter;
+import eu.fraho.libs.beencode.NodeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+@SuppressWarnings("unused")
+public class WriterBenchmark {
+    @Benchmark
+    public void encodeUnbuffered(Context ctx) throws IOException {
+        // each prefix, length and suffix is a system call
+        try (OutputStream os = new FileOutputStream(ctx.file.toFile())) {
+            NodeFactory.encode(ctx.torrent, os);
+        }
+    }
+
+    @Benchmark
+    public void encodeBufferedOutputStream(Context ctx) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(ctx.file.toFile()))) {
+            NodeFactory.encode(ctx.torrent, os);
+        }
+    }
+
+    @Benchmark
+    public void encodeWriter(Context ctx) throws IOException {
+        try (BencodeWriter writer = new BencodeWriter(new FileOutputStream(ctx.file.toFile()))) {
+            writer.write(ctx.torrent);
+        }
+    }
+
+    @Benchmark
+    public void encodeWriterChannel(Context ctx) throws IOException {
+        try (BencodeWriter writer = new BencodeWriter(FileChannel.open(ctx.file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            writer.write(ctx.torrent);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Context {
+        private BNode<?> torrent;
+        private Path file;
+
+        @Setup
+        public void setup() throws IOException {
+            torrent = NodeFactory.decode(Paths.get("src", "test", "resources", "data", "debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+            file = Files.createTempFile("beencode-benchmark", ".dat");
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Stream writing into a growing array, like {@link java.io.ByteArrayOutputStream} but without synchronization.
+ * If the initial capacity is the exact size of the written data, the array is filled and returned without any copy.
+ */
+final class ArrayOutputStream extends EncoderOutputStream {
+    private byte @NotNull [] data;
+    private int size;
+
+    ArrayOutputStream(int initialCapacity) {
+        this.data = new byte[initialCapacity];
+    }
+
+    @Override
+    public void write(int b) {
+        ensureCapacity(size + 1);
+        data[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) {
+        ensureCapacity(size + len);
+        System.arraycopy(b, off, data, size, len);
+        size += len;
+    }
+
+    /**
+     * @return the written bytes, the internal array if it is filled completely
+     */
+    @Contract(pure = true)
+    byte @NotNull [] toByteArray() {
+        return size == data.length ? data : Arrays.copyOf(data, size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new OutOfMemoryError("Encoded data exceeds the maximum array size");
+        }
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+}
@@ -13,20 +13,44 @@ import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Map<BString, BNode<?>> {
     private static final long serialVersionUID = 100L;
     private static final byte PREFIX = 'd';
     private static final byte SUFFIX = 'e';
 
-    private BDict(Map<@NotNull BString, @NotNull BNode<?>> nodes) {
-        super(Collections.unmodifiableMap(new LinkedHashMap<>(nodes)));
+    // set for lazy maps, the entries are decoded on first access
+    private final transient @Nullable DecoderBase source;
+    // cached result of encodedLength(), 0 if not computed yet
+    private transient volatile long encodedLength;
+    // encoded form kept by cacheEncoded(), null if not requested
+    private transient volatile byte @Nullable [] encoded;
+
+    // takes ownership of the given map, which has to be immutable already
+    private BDict(@NotNull Map<@NotNull BString, @NotNull BNode<?>> nodes) {
+        super(nodes);
+        this.source = null;
+    }
+
+    private BDict(@NotNull DecoderBase source) {
+        this.source = source;
+    }
+
+    /**
+     * Create a map which decodes its entries on first access.
+     *
+     * @param source decoder for the encoded map, which has already been validated
+     * @return a new map
+     */
+    @Contract(pure = true, value = "_ -> new")
+    static @NotNull BDict lazy(@NotNull DecoderBase source) {
+        return new BDict(source);
     }
 
     /**
@@ -40,7 +64,7 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
      */
     @Contract(pure = true, value = "_ -> new")
     public static @NotNull BDict of(@NotNull BNode<?> @NotNull ... nodes) {
-        LinkedHashMap<BString, BNode<?>> temp = new LinkedHashMap<>();
+        Builder builder = builder(nodes.length / 2);
         for (int i = 0; i < nodes.length; i += 2) {
             if (!(nodes[i] instanceof BString)) {
                 Class<?> clz = nodes[i] == null ? null : nodes[i].getClass();
@@ -49,9 +73,9 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
             if (i + 1 == nodes.length || nodes[i + 1] == null) {
                 throw new BencodeException("value argument #" + i + " has to be not null");
             }
-            temp.put((BString) nodes[i], nodes[i + 1]);
+            builder.put((BString) nodes[i], nodes[i + 1]);
         }
-        return of(temp);
+        return builder.build();
     }
 
     /**
@@ -76,25 +100,24 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
      */
     @Contract(value = "_, _ -> new")
     public static @NotNull BDict of(@NotNull InputStream is, byte prefix) throws IOException {
+        return of(is, prefix, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Parse the given stream for a map
+     *
+     * @param is     stream of data
+     * @param prefix first read byte, has to be {@link #PREFIX}
+     * @param config settings for decoding
+     * @return a new map
+     * @throws BencodeException if the given prefix is not {@link #PREFIX} or the parsed stream is invalid
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull BDict of(@NotNull InputStream is, byte prefix, @NotNull DecoderConfig config) throws IOException {
         if (!canParsePrefix(prefix)) {
             throw new BencodeException("Unknown prefix, cannot parse: " + prefix);
         }
-        Map<BString, BNode<?>> result = new LinkedHashMap<>();
-        byte read;
-        while ((read = (byte) is.read()) != SUFFIX) {
-            if (!BString.canParsePrefix(read)) {
-                throw new BencodeException("Expected a dictionary key (BString), but it"
-                                           + " cannot parse with prefix '" + read + "'.");
-            }
-            BString key = BString.of(is, read);
-            read = (byte) is.read();
-            if (read == SUFFIX) {
-                throw new BencodeException(
-                    "Expected dictionary value, but suffix was found.");
-            }
-            result.put(key, NodeFactory.decode(is, read));
-        }
-        return of(result);
+        return (BDict) new StreamDecoder(is, config).decode(prefix);
     }
 
     /**
@@ -102,10 +125,37 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
      *
      * @param value map of elements
      * @return a new map
+     * @throws BencodeException if a key or value is null
      */
     @Contract(pure = true, value = "_ -> new")
     public static @NotNull BDict of(@NotNull Map<BString, BNode<?>> value) {
-        return new BDict(value);
+        Builder builder = builder(value.size());
+        for (Map.Entry<BString, BNode<?>> entry : value.entrySet()) {
+            builder.put(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Create a builder to assemble a new map entry by entry.
+     *
+     * @return a new builder
+     */
+    @Contract(pure = true, value = "-> new")
+    public static @NotNull Builder builder() {
+        return new Builder(16);
+    }
+
+    /**
+     * Create a builder to assemble a new map entry by entry.
+     *
+     * @param expectedSize expected count of entries, so the builder does not have to grow and {@link Builder#build()}
+     *                     does not have to trim its arrays
+     * @return a new builder
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static @NotNull Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
     }
 
     /**
@@ -118,8 +168,82 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
         return prefix == PREFIX;
     }
 
+    /**
+     * @param prefix first byte of a dictionary key
+     * @throws BencodeException if the key is not a BString
+     */
+    @Contract(pure = true)
+    static void checkKeyPrefix(byte prefix) {
+        if (!BString.canParsePrefix(prefix)) {
+            throw new BencodeException("Expected a dictionary key (BString), but it"
+                                       + " cannot parse with prefix '" + prefix + "'.");
+        }
+    }
+
+    /**
+     * @param previous previous key of a dictionary
+     * @param key      current key of the dictionary
+     * @throws BencodeException if the current key is not greater than the previous key
+     * @see DecoderConfig#isStrict()
+     */
+    @Contract(pure = true)
+    static void checkKeyOrder(@NotNull BString previous, @NotNull BString key) {
+        int diff = BString.compareBytes(previous, key);
+        if (diff == 0) {
+            throw new BencodeException("Duplicate dictionary key '" + key + "'");
+        } else if (diff > 0) {
+            throw new BencodeException("Dictionary key '" + key + "' is out of order, it follows '" + previous + "'");
+        }
+    }
+
+    /**
+     * @param prefix first byte of a dictionary value
+     * @throws BencodeException if the dictionary ends instead
+     */
+    @Contract(pure = true)
+    static void checkValuePrefix(byte prefix) {
+        if (prefix == SUFFIX) {
+            throw new BencodeException(
+                "Expected dictionary value, but suffix was found.");
+        }
+    }
+
+    @Override
+    @NotNull Map<BString, BNode<?>> computeValue() {
+        if (source == null) {
+            return super.computeValue();
+        }
+        return source.range(source.start, source.limit).decodeDictEntries();
+    }
+
+    @Override
+    @Contract(pure = true)
+    public long encodedLength() {
+        if (source != null) {
+            return source.limit - source.start;
+        }
+        long result = encodedLength;
+        if (result == 0) {
+            result = 2;
+            for (Map.Entry<BString, BNode<?>> entry : getValue().entrySet()) {
+                result += entry.getKey().encodedLength() + entry.getValue().encodedLength();
+            }
+            encodedLength = result;
+        }
+        return result;
+    }
+
     @Override
     public void write(@NotNull OutputStream os) throws IOException {
+        if (source != null) {
+            source.writeRange(os);
+            return;
+        }
+        byte[] cached = encoded;
+        if (cached != null) {
+            os.write(cached);
+            return;
+        }
         os.write(PREFIX);
         for (Map.Entry<BString, BNode<?>> entry : getValue().entrySet()) {
             entry.getKey().write(os);
@@ -129,7 +253,83 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
     }
 
     /**
-     * Create a copy of this map with the given key and value added.
+     * Encode this map once and keep the result, so {@link NodeFactory#encode(BNode)} and {@link #write(OutputStream)}
+     * only copy it afterwards. The encoded form is retained as long as this map, so this is only useful for maps
+     * which are written repeatedly, like a prepared tracker response.
+     *
+     * @return this map
+     */
+    @Contract("-> this")
+    public @NotNull BDict cacheEncoded() {
+        if (encoded == null) {
+            // a new array, which is never handed out
+            encoded = NodeFactory.encode(this);
+        }
+        return this;
+    }
+
+    @Override
+    @Contract(pure = true)
+    byte @Nullable [] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Write this map with its keys and the keys of all nested dictionaries in ascending order.
+     * The entries are only sorted if they are out of order, so the common case is a single pass.
+     *
+     * @param os stream to write to
+     * @throws IOException      if writing fails
+     * @throws BencodeException if two keys are equal
+     * @see NodeFactory#encodeCanonical(BNode)
+     */
+    void writeCanonical(@NotNull OutputStream os) throws IOException {
+        Map<BString, BNode<?>> entries = getValue();
+        os.write(PREFIX);
+        if (isSorted(entries)) {
+            for (Map.Entry<BString, BNode<?>> entry : entries.entrySet()) {
+                entry.getKey().write(os);
+                NodeFactory.writeCanonical(entry.getValue(), os);
+            }
+        } else {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Map.Entry<BString, BNode<?>>[] sorted = entries.entrySet().toArray(new Map.Entry[0]);
+            Arrays.sort(sorted, Map.Entry.comparingByKey());
+            for (int i = 0; i < sorted.length; i++) {
+                BString key = sorted[i].getKey();
+                if (i > 0 && key.compareTo(sorted[i - 1].getKey()) == 0) {
+                    throw new BencodeException("Duplicate dictionary key: " + key);
+                }
+                key.write(os);
+                NodeFactory.writeCanonical(sorted[i].getValue(), os);
+            }
+        }
+        os.write(SUFFIX);
+    }
+
+    /**
+     * @param entries entries of a map
+     * @return are the keys strictly ascending?
+     */
+    @Contract(pure = true)
+    private static boolean isSorted(@NotNull Map<BString, BNode<?>> entries) {
+        if (entries instanceof SortedArrayMap || entries instanceof PersistentMap) {
+            // sorted by construction
+            return true;
+        }
+        BString previous = null;
+        for (BString key : entries.keySet()) {
+            if (previous != null && previous.compareTo(key) >= 0) {
+                return false;
+            }
+            previous = key;
+        }
+        return true;
+    }
+
+    /**
+     * Create a copy of this map with the given key and value added. The entries of the new map are sorted by
+     * their keys.
      *
      * @param key   new key
      * @param value new value
@@ -137,9 +337,7 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
      */
     @Contract(pure = true, value = "_, _ -> new")
     public @NotNull BDict with(@NotNull BString key, @NotNull BNode<?> value) {
-        TreeMap<BString, BNode<?>> temp = new TreeMap<>(getValue());
-        temp.put(key, value);
-        return of(temp);
+        return new BDict(toPersistent().with(key, value));
     }
 
     /**
@@ -163,12 +361,10 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
      */
     @Contract(pure = true)
     public @NotNull BDict without(@NotNull BString key) {
-        TreeMap<BString, BNode<?>> temp = new TreeMap<>(getValue());
-        if (temp.remove(key) != null) {
-            return of(temp);
-        } else {
+        if (!containsKey(key)) {
             return this;
         }
+        return new BDict(toPersistent().without(key));
     }
 
     /**
@@ -179,11 +375,24 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
      */
     @Contract(pure = true, value = "_ -> new")
     public @NotNull BDict join(@NotNull BDict @NotNull ... others) {
-        TreeMap<BString, BNode<?>> temp = new TreeMap<>(getValue());
+        PersistentMap<BString, BNode<?>> result = toPersistent();
         for (BDict other : others) {
-            temp.putAll(other.getValue());
+            for (Map.Entry<BString, BNode<?>> entry : other.entrySet()) {
+                result = result.with(entry.getKey(), entry.getValue());
+            }
         }
-        return of(temp);
+        return new BDict(result);
+    }
+
+    /**
+     * The entries of a map are converted to a sorted tree on the first modification, so further modifications of
+     * the result share most of their structure and take O(log n) each.
+     *
+     * @return the entries of this map as a persistent map
+     */
+    @Contract(pure = true)
+    private @NotNull PersistentMap<BString, BNode<?>> toPersistent() {
+        return PersistentMap.of(getValue());
     }
 
     /**
@@ -288,4 +497,129 @@ public final class BDict extends BNodeBase<Map<BString, BNode<?>>> implements Ma
     public void clear() {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Mutable builder for a {@link BDict}. The entries keep the order in which they were added, adding a key again
+     * replaces its value. The entries are handed over to the new node by {@link #build()} without copying them,
+     * so a builder cannot be used anymore afterwards.
+     * <p>
+     * As long as the keys are added in ascending order, as required for encoded dictionaries, they are collected in
+     * sorted arrays which need much less memory than a hash map.
+     */
+    public static final class Builder {
+        private static final BString[] NO_KEYS = new BString[0];
+        private static final BNode<?>[] NO_VALUES = new BNode<?>[0];
+
+        // sorted entries, until the first key out of order is added
+        private BString @Nullable [] keys;
+        private BNode<?> @Nullable [] values;
+        private int size;
+        // all entries, after the first key out of order has been added
+        private @Nullable Map<BString, BNode<?>> entries;
+        private boolean built;
+
+        private Builder(int expectedSize) {
+            if (expectedSize < 0) {
+                throw new IllegalArgumentException("expectedSize may not be negative: " + expectedSize);
+            }
+            keys = expectedSize == 0 ? NO_KEYS : new BString[expectedSize];
+            values = expectedSize == 0 ? NO_VALUES : new BNode<?>[expectedSize];
+        }
+
+        /**
+         * Add an entry to the new map.
+         *
+         * @param key   key of the entry
+         * @param value value of the entry
+         * @return this builder
+         * @throws BencodeException      if the key or value is null
+         * @throws IllegalStateException if the map has already been built
+         */
+        @Contract(value = "_, _ -> this")
+        public @NotNull Builder put(@NotNull BString key, @NotNull BNode<?> value) {
+            //noinspection ConstantValue
+            if (key == null || value == null) {
+                throw new BencodeException("null keys or values are not allowed for BDict");
+            }
+            checkNotBuilt();
+            if (entries != null) {
+                entries.put(key, value);
+            } else if (size == 0 || BString.compareBytes(keys[size - 1], key) < 0) {
+                append(key, value);
+            } else {
+                // out of order or a duplicate, so keep the order of insertion from now on
+                entries = new LinkedHashMap<>((int) Math.min(keys.length * 4L / 3 + 1, Integer.MAX_VALUE));
+                for (int i = 0; i < size; i++) {
+                    entries.put(keys[i], values[i]);
+                }
+                entries.put(key, value);
+                keys = null;
+                values = null;
+            }
+            return this;
+        }
+
+        /**
+         * Add an entry to the new map.
+         *
+         * @param key   key of the entry
+         * @param value value of the entry
+         * @return this builder
+         * @throws BencodeException      if the value is null
+         * @throws IllegalStateException if the map has already been built
+         * @see #put(BString, BNode)
+         */
+        @Contract(value = "_, _ -> this")
+        public @NotNull Builder put(@NotNull String key, @NotNull BNode<?> value) {
+            return put(BString.of(key), value);
+        }
+
+        /**
+         * @return count of entries added so far
+         * @throws IllegalStateException if the map has already been built
+         */
+        @Contract(pure = true)
+        public int size() {
+            checkNotBuilt();
+            return entries != null ? entries.size() : size;
+        }
+
+        /**
+         * Create the map, this builder cannot be used anymore afterwards.
+         *
+         * @return a new map
+         * @throws IllegalStateException if the map has already been built
+         */
+        @Contract(value = "-> new")
+        public @NotNull BDict build() {
+            checkNotBuilt();
+            built = true;
+            if (entries != null) {
+                return new BDict(Collections.unmodifiableMap(entries));
+            }
+            // trim the arrays, as dictionaries may be kept in memory for a long time, exact ones are handed over
+            BString[] sortedKeys = size == keys.length ? keys : Arrays.copyOf(keys, size);
+            BNode<?>[] sortedValues = size == values.length ? values : Arrays.copyOf(values, size);
+            keys = null;
+            values = null;
+            return new BDict(new SortedArrayMap(sortedKeys, sortedValues));
+        }
+
+        private void append(@NotNull BString key, @NotNull BNode<?> value) {
+            if (size == keys.length) {
+                int capacity = (int) Math.min(Math.max(8, size * 2L), NodeFactory.MAX_ARRAY_LENGTH);
+                keys = Arrays.copyOf(keys, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            keys[size] = key;
+            values[size] = value;
+            size++;
+        }
+
+        private void checkNotBuilt() {
+            if (built) {
+                throw new IllegalStateException("The map has already been built");
+            }
+        }
+    }
 }
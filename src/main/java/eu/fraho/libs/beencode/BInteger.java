@@ -8,21 +8,48 @@ package eu.fraho.libs.beencode;
 
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
+import java.util.Objects;
 
 public final class BInteger extends BNodeBase<BigInteger> implements Comparable<BInteger> {
     private static final long serialVersionUID = 100L;
     // maximum length of 64 bit signed integer is 20 chars + suffix
-    private static final int MAX_READ_LEN = 21;
+    static final int MAX_READ_LEN = 21;
+    // digits of Long.MIN_VALUE, without the sign
+    private static final byte[] LONG_MIN_DIGITS = "9223372036854775808".getBytes(DEFAULT_CHARSET);
     private static final byte PREFIX = 'i';
     private static final byte SUFFIX = 'e';
+    // range of the shared instances returned by of(long)
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final BInteger[] CACHE = new BInteger[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new BInteger((long) i + CACHE_LOW);
+        }
+    }
+
+    // isLong is set if the value is held in asLong, the BigInteger is then only created when requested by getValue().
+    // Otherwise the value is held in the BigInteger: of(BigInteger) and the parsers use it for values of 64 bits or
+    // more, and instances serialized by an older version are read with isLong unset, whatever their value.
+    private final boolean isLong;
+    private final long asLong;
 
     private BInteger(@NotNull BigInteger value) {
         super(value);
+        this.isLong = false;
+        this.asLong = 0;
+    }
+
+    private BInteger(long value) {
+        this.isLong = true;
+        this.asLong = value;
     }
 
     /**
@@ -31,9 +58,9 @@ public final class BInteger extends BNodeBase<BigInteger> implements Comparable<
      * @param value value
      * @return new instance
      */
-    @Contract(pure = true, value = "_ -> new")
+    @Contract(pure = true)
     public static @NotNull BInteger of(@NotNull Integer value) {
-        return of(BigInteger.valueOf(value));
+        return of(value.longValue());
     }
 
     /**
@@ -42,9 +69,23 @@ public final class BInteger extends BNodeBase<BigInteger> implements Comparable<
      * @param value value
      * @return new instance
      */
-    @Contract(pure = true, value = "_ -> new")
+    @Contract(pure = true)
     public static @NotNull BInteger of(@NotNull Long value) {
-        return of(BigInteger.valueOf(value));
+        return of(value.longValue());
+    }
+
+    /**
+     * Create an instance of the given value. Small values between -128 and 1024 are shared instances.
+     *
+     * @param value value
+     * @return new or shared instance
+     */
+    @Contract(pure = true)
+    public static @NotNull BInteger of(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return CACHE[(int) value - CACHE_LOW];
+        }
+        return new BInteger(value);
     }
 
     /**
@@ -53,8 +94,12 @@ public final class BInteger extends BNodeBase<BigInteger> implements Comparable<
      * @param value value
      * @return new instance
      */
-    @Contract(pure = true, value = "_ -> new")
+    @Contract(pure = true)
     public static @NotNull BInteger of(@NotNull BigInteger value) {
+        Objects.requireNonNull(value, "value may not be null");
+        if (value.bitLength() < Long.SIZE) {
+            return of(value.longValue());
+        }
         return new BInteger(value);
     }
 
@@ -84,36 +129,158 @@ public final class BInteger extends BNodeBase<BigInteger> implements Comparable<
             throw new BencodeException("Unknown prefix, cannot parse: " + prefix);
         }
 
-        StringBuilder str = new StringBuilder(MAX_READ_LEN);
-        byte read = 0;
-        for (int i = 0; i < MAX_READ_LEN; i++) {
+        // accumulate the digits without allocation, negative as Long.MIN_VALUE has no positive counterpart
+        byte read = (byte) is.read();
+        boolean negative = read == '-';
+        if (negative) {
+            read = (byte) is.read();
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        int digits = 0;
+        while (read != SUFFIX) {
+            int digit = read - '0';
+            // anything but the digits of a long without leading zeros is left to the general parser
+            if (digit < 0 || digit > 9 || (digits > 0 && value == 0)
+                || value < limit / 10 || value * 10 < limit + digit) {
+                return parseRemaining(is, negative, value, digits, read);
+            }
+            value = value * 10 - digit;
+            digits++;
+            read = (byte) is.read();
+        }
+        if (digits == 0 || (negative && value == 0)) {
+            return parseRemaining(is, negative, value, digits, read);
+        }
+        return of(negative ? value : -value);
+    }
+
+    /**
+     * Continue parsing an integer from a stream in an array, for huge and invalid numbers.
+     *
+     * @param is       stream of data
+     * @param negative was a minus sign read?
+     * @param value    negated value of the digits read so far, which have no leading zeros
+     * @param digits   count of digits read so far
+     * @param read     the last byte read from the stream
+     * @return new instance
+     * @throws BencodeException if the parsed stream is invalid
+     */
+    private static @NotNull BInteger parseRemaining(@NotNull InputStream is, boolean negative, long value, int digits,
+                                                    byte read) throws IOException {
+        byte[] data = new byte[MAX_READ_LEN];
+        int length = 0;
+        if (negative) {
+            data[length++] = '-';
+        }
+        if (digits > 0) {
+            byte[] previous = Long.toString(value).getBytes(DEFAULT_CHARSET);
+            // skip the sign of the negated value
+            int first = value < 0 ? 1 : 0;
+            System.arraycopy(previous, first, data, length, previous.length - first);
+            length += previous.length - first;
+        }
+        while (read != SUFFIX) {
+            if (length == MAX_READ_LEN - 1) {
+                throw new BencodeException("Invalid data, did not find suffix within " + MAX_READ_LEN + " bytes");
+            }
+            data[length++] = read;
             read = (byte) is.read();
-            if (read == SUFFIX) {
-                break;
+        }
+        return parse(data, 0, length);
+    }
+
+    /**
+     * Parse the digits of an encoded integer, without the prefix and suffix.
+     *
+     * @param data   array containing the digits
+     * @param offset index of the first digit (or the minus sign)
+     * @param length number of bytes to parse
+     * @return new instance
+     * @throws BencodeException if the given data is not a valid number
+     */
+    @Contract(pure = true, value = "_, _, _ -> new")
+    static @NotNull BInteger parse(byte @NotNull [] data, int offset, int length) {
+        validate(data, offset, length);
+        if (fitsLong(data, offset, length)) {
+            return of(parseLong(data, offset, length));
+        }
+        // slow path for huge numbers
+        return of(new BigInteger(new String(data, offset, length, DEFAULT_CHARSET)));
+    }
+
+    /**
+     * Check if the given, already validated, digits are within the range of a long.
+     *
+     * @param data   array containing the digits
+     * @param offset index of the first digit (or the minus sign)
+     * @param length number of bytes to check
+     * @return can the number be parsed by {@link #parseLong(byte[], int, int)}?
+     */
+    @Contract(pure = true)
+    static boolean fitsLong(byte @NotNull [] data, int offset, int length) {
+        boolean negative = data[offset] == '-';
+        int first = negative ? offset + 1 : offset;
+        int digits = offset + length - first;
+        if (digits != LONG_MIN_DIGITS.length) {
+            return digits < LONG_MIN_DIGITS.length;
+        }
+        for (int i = 0; i < digits; i++) {
+            int diff = data[first + i] - LONG_MIN_DIGITS[i];
+            if (diff != 0) {
+                return diff < 0;
             }
-            str.append((char) read);
         }
+        // exactly the digits of Long.MIN_VALUE, which is one more than Long.MAX_VALUE
+        return negative;
+    }
 
-        if (read != SUFFIX) {
-            throw new BencodeException("Invalid data, did not find suffix within " + MAX_READ_LEN + " bytes");
+    /**
+     * Parse the given, already validated, digits into a long without any allocation.
+     *
+     * @param data   array containing the digits
+     * @param offset index of the first digit (or the minus sign)
+     * @param length number of bytes to parse
+     * @return the parsed number
+     * @see #fitsLong(byte[], int, int)
+     */
+    @Contract(pure = true)
+    static long parseLong(byte @NotNull [] data, int offset, int length) {
+        boolean negative = data[offset] == '-';
+        // accumulate negative, as Long.MIN_VALUE has no positive counterpart
+        long result = 0;
+        for (int i = negative ? offset + 1 : offset; i < offset + length; i++) {
+            result = result * 10 - (data[i] - '0');
         }
+        return negative ? result : -result;
+    }
 
-        String input = str.toString();
-        int length = input.length();
+    /**
+     * Check the digits of an encoded integer, without the prefix and suffix.
+     * A valid number consists of an optional minus sign and at least one digit, leading zeros are not allowed.
+     *
+     * @param data   array containing the digits
+     * @param offset index of the first digit (or the minus sign)
+     * @param length number of bytes to check
+     * @throws BencodeException if the given data is not a valid number
+     */
+    @Contract(pure = true)
+    static void validate(byte @NotNull [] data, int offset, int length) {
         if (length == 0) {
             throw new BencodeException("Invalid data, no data read");
         }
-        if (input.equals("-")) {
+        boolean negative = data[offset] == '-';
+        if (negative && length == 1) {
             throw new BencodeException("Invalid data, only a dash was read");
         }
-        if (input.startsWith("0") && length > 1 || input.startsWith("-0")) {
+        int first = negative ? offset + 1 : offset;
+        if (data[first] == '0' && (length > 1 || negative)) {
             throw new BencodeException("Invalid data, leading zeros are not allowed");
         }
-
-        try {
-            return of(new BigInteger(input));
-        } catch (NumberFormatException nfe) {
-            throw new BencodeException(nfe);
+        for (int i = first; i < offset + length; i++) {
+            if (data[i] < '0' || data[i] > '9') {
+                throw new BencodeException("Invalid data, expected a digit but got '" + data[i] + "'");
+            }
         }
     }
 
@@ -127,16 +294,128 @@ public final class BInteger extends BNodeBase<BigInteger> implements Comparable<
         return prefix == PREFIX;
     }
 
+    /**
+     * Write the decimal digits of the given value, ending right before the given index.
+     *
+     * @param value  value to write
+     * @param target array to write to, has to provide enough space before {@code end}
+     * @param end    index after the last digit
+     * @return index of the first written byte
+     */
+    static int putDigits(long value, byte @NotNull [] target, int end) {
+        int index = end;
+        // work on the negative value, as Long.MIN_VALUE has no positive counterpart
+        long remaining = value < 0 ? value : -value;
+        do {
+            target[--index] = (byte) ('0' - remaining % 10);
+            remaining /= 10;
+        } while (remaining != 0);
+        if (value < 0) {
+            target[--index] = '-';
+        }
+        return index;
+    }
+
+    /**
+     * @param value a number
+     * @return the number of bytes written by {@link #putDigits(long, byte[], int)} for the given number
+     */
+    @Contract(pure = true)
+    static int numberLength(long value) {
+        int length = value < 0 ? 2 : 1;
+        // work on the negative value, as Long.MIN_VALUE has no positive counterpart
+        for (long remaining = value < 0 ? value : -value; remaining <= -10; remaining /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * @return the value of this integer
+     * @throws ArithmeticException if the value does not fit into a long
+     */
+    @Contract(pure = true)
+    public long longValue() {
+        if (!isLong) {
+            // values of 64 bits or more throw, deserialized values of an older version may still fit
+            return getValue().longValueExact();
+        }
+        return asLong;
+    }
+
+    /**
+     * @return the value of this integer
+     * @throws ArithmeticException if the value does not fit into an int
+     */
+    @Contract(pure = true)
+    public int intValue() {
+        return Math.toIntExact(longValue());
+    }
+
+    @Override
+    @NotNull BigInteger computeValue() {
+        if (!isLong) {
+            return super.computeValue();
+        }
+        return BigInteger.valueOf(asLong);
+    }
+
+    @Override
+    @Contract(pure = true)
+    public long encodedLength() {
+        if (!isLong) {
+            return getValue().toString().length() + 2L;
+        }
+        return numberLength(asLong) + 2L;
+    }
+
     @Override
     public void write(@NotNull OutputStream os) throws IOException {
+        if (!isLong) {
+            os.write(PREFIX);
+            os.write(getValue().toString().getBytes(DEFAULT_CHARSET));
+            os.write(SUFFIX);
+            return;
+        }
         os.write(PREFIX);
-        os.write(getValue().toString().getBytes(DEFAULT_CHARSET));
+        EncoderOutputStream.writeNumber(os, asLong);
         os.write(SUFFIX);
     }
 
+    @Override
+    @Contract(pure = true)
+    public boolean equals(@Nullable Object obj) {
+        if (isLong && obj instanceof BInteger && ((BInteger) obj).isLong) {
+            return asLong == ((BInteger) obj).asLong;
+        }
+        return super.equals(obj);
+    }
+
+    @Override
+    @Contract(pure = true)
+    int computeHashCode() {
+        if (!isLong) {
+            return super.computeHashCode();
+        }
+        // same result as Objects.hash(getClass(), getValue()), without creating the BigInteger
+        long magnitude = asLong < 0 ? -asLong : asLong;
+        int high = (int) (magnitude >>> 32);
+        int hash = high == 0 ? (int) magnitude : 31 * high + (int) magnitude;
+        return 31 * (31 + getClass().hashCode()) + hash * Long.signum(asLong);
+    }
+
+    @Override
+    @Contract(pure = true, value = "-> new")
+    public String toString() {
+        return isLong ? Long.toString(asLong) : super.toString();
+    }
+
     @Override
     @Contract(pure = true)
     public int compareTo(@NotNull BInteger o) {
+        if (isLong && o.isLong) {
+            return Long.compare(asLong, o.asLong);
+        }
         return getValue().compareTo(o.getValue());
     }
 
@@ -149,6 +428,6 @@ public final class BInteger extends BNodeBase<BigInteger> implements Comparable<
     @Override
     @Contract(pure = true, value = "-> new")
     public @NotNull BInteger clone() {
-        return BInteger.of(getValue());
+        return isLong ? new BInteger(asLong) : new BInteger(getValue());
     }
 }
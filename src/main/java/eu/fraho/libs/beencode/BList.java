@@ -26,8 +26,32 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
     private static final byte PREFIX = 'l';
     private static final byte SUFFIX = 'e';
 
+    // set for lazy lists, the elements are decoded on first access
+    private final transient @Nullable DecoderBase source;
+    // cached result of encodedLength(), 0 if not computed yet
+    private transient volatile long encodedLength;
+    // encoded form kept by cacheEncoded(), null if not requested
+    private transient volatile byte @Nullable [] encoded;
+
+    // takes ownership of the given list, which has to be immutable already
     private BList(@NotNull List<@NotNull BNode<?>> nodes) {
-        super(Collections.unmodifiableList(new ArrayList<>(nodes)));
+        super(nodes);
+        this.source = null;
+    }
+
+    private BList(@NotNull DecoderBase source) {
+        this.source = source;
+    }
+
+    /**
+     * Create a list which decodes its elements on first access.
+     *
+     * @param source decoder for the encoded list, which has already been validated
+     * @return a new list
+     */
+    @Contract(pure = true, value = "_ -> new")
+    static @NotNull BList lazy(@NotNull DecoderBase source) {
+        return new BList(source);
     }
 
     /**
@@ -39,15 +63,11 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
      */
     @Contract(pure = true, value = "_ -> new")
     public static @NotNull BList of(@NotNull BNode<?> @NotNull ... nodes) {
-        List<BNode<?>> list = new ArrayList<>();
+        Builder builder = builder(nodes.length);
         for (BNode<?> node : nodes) {
-            //noinspection ConstantValue
-            if (node == null) {
-                throw new BencodeException("null elements are not allowed for BList");
-            }
-            list.add(node);
+            builder.add(node);
         }
-        return of(list);
+        return builder.build();
     }
 
     /**
@@ -62,7 +82,28 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
         if (nodes.contains(null)) {
             throw new BencodeException("null elements are not allowed for BList");
         }
-        return new BList(nodes);
+        return new BList(Collections.unmodifiableList(new ArrayList<>(nodes)));
+    }
+
+    /**
+     * Create a builder to assemble a new list element by element.
+     *
+     * @return a new builder
+     */
+    @Contract(pure = true, value = "-> new")
+    public static @NotNull Builder builder() {
+        return new Builder(10);
+    }
+
+    /**
+     * Create a builder to assemble a new list element by element.
+     *
+     * @param expectedSize expected count of elements, so the builder does not have to grow
+     * @return a new builder
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static @NotNull Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
     }
 
     /**
@@ -87,16 +128,24 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
      */
     @Contract(value = "_, _ -> new")
     public static @NotNull BList of(@NotNull InputStream is, byte prefix) throws IOException {
+        return of(is, prefix, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Parse the given stream for a BList
+     *
+     * @param is     stream of data
+     * @param prefix first read byte, has to be {@link #PREFIX}
+     * @param config settings for decoding
+     * @return new instance
+     * @throws BencodeException if the given prefix is not {@link #PREFIX} or the parsed stream is invalid
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull BList of(@NotNull InputStream is, byte prefix, @NotNull DecoderConfig config) throws IOException {
         if (!canParsePrefix(prefix)) {
             throw new BencodeException("Unknown prefix, cannot parse: " + prefix);
         }
-
-        List<BNode<?>> temp = new ArrayList<>();
-        byte read;
-        while ((read = (byte) is.read()) != SUFFIX) {
-            temp.add(NodeFactory.decode(is, read));
-        }
-        return of(temp);
+        return (BList) new StreamDecoder(is, config).decode(prefix);
     }
 
     /**
@@ -109,8 +158,42 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
         return prefix == PREFIX;
     }
 
+    @Override
+    @NotNull List<BNode<?>> computeValue() {
+        if (source == null) {
+            return super.computeValue();
+        }
+        return source.range(source.start, source.limit).decodeListElements();
+    }
+
+    @Override
+    @Contract(pure = true)
+    public long encodedLength() {
+        if (source != null) {
+            return source.limit - source.start;
+        }
+        long result = encodedLength;
+        if (result == 0) {
+            result = 2;
+            for (BNode<?> node : getValue()) {
+                result += node.encodedLength();
+            }
+            encodedLength = result;
+        }
+        return result;
+    }
+
     @Override
     public void write(@NotNull OutputStream os) throws IOException {
+        if (source != null) {
+            source.writeRange(os);
+            return;
+        }
+        byte[] cached = encoded;
+        if (cached != null) {
+            os.write(cached);
+            return;
+        }
         os.write(PREFIX);
         for (BNode<?> node : getValue()) {
             node.write(os);
@@ -118,6 +201,43 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
         os.write(SUFFIX);
     }
 
+    /**
+     * Encode this list once and keep the result, so {@link NodeFactory#encode(BNode)} and {@link #write(OutputStream)}
+     * only copy it afterwards. The encoded form is retained as long as this list, so this is only useful for lists
+     * which are written repeatedly, like a prepared tracker response.
+     *
+     * @return this list
+     */
+    @Contract("-> this")
+    public @NotNull BList cacheEncoded() {
+        if (encoded == null) {
+            // a new array, which is never handed out
+            encoded = NodeFactory.encode(this);
+        }
+        return this;
+    }
+
+    @Override
+    @Contract(pure = true)
+    byte @Nullable [] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Write this list with the keys of all nested dictionaries in ascending order.
+     *
+     * @param os stream to write to
+     * @throws IOException if writing fails
+     * @see NodeFactory#encodeCanonical(BNode)
+     */
+    void writeCanonical(@NotNull OutputStream os) throws IOException {
+        os.write(PREFIX);
+        for (BNode<?> node : getValue()) {
+            NodeFactory.writeCanonical(node, os);
+        }
+        os.write(SUFFIX);
+    }
+
     /**
      * Create a copy of this list with the given elements added.
      *
@@ -126,9 +246,15 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
      */
     @Contract(pure = true, value = "_, -> new")
     public @NotNull BList with(@NotNull BNode<?> @NotNull ... values) {
-        List<BNode<?>> temp = new ArrayList<>(getValue());
-        Collections.addAll(temp, values);
-        return of(temp);
+        PersistentList<BNode<?>> result = toPersistent();
+        for (BNode<?> node : values) {
+            //noinspection ConstantValue
+            if (node == null) {
+                throw new BencodeException("null elements are not allowed for BList");
+            }
+            result = result.plus(node);
+        }
+        return new BList(result);
     }
 
     /**
@@ -141,12 +267,11 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
      */
     @Contract(pure = true, value = "_ -> new")
     public @NotNull BList without(@NotNull BNode<?> node) {
-        List<BNode<?>> temp = new ArrayList<>(getValue());
-        if (temp.remove(node)) {
-            return of(temp);
-        } else {
+        int index = indexOf(node);
+        if (index < 0) {
             return this;
         }
+        return new BList(toPersistent().minus(index));
     }
 
 
@@ -159,9 +284,7 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
      */
     @Contract(pure = true, value = "_ -> new")
     public @NotNull BList without(int index) {
-        List<BNode<?>> temp = new ArrayList<>(getValue());
-        temp.remove(index);
-        return of(temp);
+        return new BList(toPersistent().minus(index));
     }
 
     /**
@@ -172,11 +295,22 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
      */
     @Contract(pure = true, value = "_, -> new")
     public @NotNull BList join(@NotNull BList @NotNull ... others) {
-        List<BNode<?>> temp = new ArrayList<>(getValue());
+        PersistentList<BNode<?>> result = toPersistent();
         for (BList other : others) {
-            temp.addAll(other.getValue());
+            result = result.plus(other.toPersistent());
         }
-        return of(temp);
+        return new BList(result);
+    }
+
+    /**
+     * The elements of a list are converted to a balanced tree on the first modification, so further modifications of
+     * the result share most of their structure and take O(log n) each.
+     *
+     * @return the elements of this list as a persistent list
+     */
+    @Contract(pure = true)
+    private @NotNull PersistentList<BNode<?>> toPersistent() {
+        return PersistentList.of(getValue());
     }
 
     /**
@@ -332,4 +466,67 @@ public final class BList extends BNodeBase<List<BNode<?>>> implements List<BNode
     public void add(int index, @NotNull BNode<?> element) {
         throw new UnsupportedOperationException();
     }
+
+    /**
+     * Mutable builder for a {@link BList}. The list is handed over to the new node by {@link #build()} without
+     * copying it, so a builder cannot be used anymore afterwards.
+     */
+    public static final class Builder {
+        private @Nullable List<BNode<?>> elements;
+
+        private Builder(int expectedSize) {
+            if (expectedSize < 0) {
+                throw new IllegalArgumentException("expectedSize may not be negative: " + expectedSize);
+            }
+            elements = new ArrayList<>(expectedSize);
+        }
+
+        /**
+         * Append an element to the new list.
+         *
+         * @param node new element
+         * @return this builder
+         * @throws BencodeException      if the element is null
+         * @throws IllegalStateException if the list has already been built
+         */
+        @Contract(value = "_ -> this")
+        public @NotNull Builder add(@NotNull BNode<?> node) {
+            //noinspection ConstantValue
+            if (node == null) {
+                throw new BencodeException("null elements are not allowed for BList");
+            }
+            elements().add(node);
+            return this;
+        }
+
+        /**
+         * @return count of elements added so far
+         * @throws IllegalStateException if the list has already been built
+         */
+        @Contract(pure = true)
+        public int size() {
+            return elements().size();
+        }
+
+        /**
+         * Create the list, this builder cannot be used anymore afterwards.
+         *
+         * @return a new list
+         * @throws IllegalStateException if the list has already been built
+         */
+        @Contract(value = "-> new")
+        public @NotNull BList build() {
+            BList result = new BList(Collections.unmodifiableList(elements()));
+            elements = null;
+            return result;
+        }
+
+        private @NotNull List<BNode<?>> elements() {
+            List<BNode<?>> result = elements;
+            if (result == null) {
+                throw new IllegalStateException("The list has already been built");
+            }
+            return result;
+        }
+    }
 }
@@ -27,6 +27,24 @@ public interface BNode<T> extends Cloneable, Serializable {
      */
     void write(@NotNull OutputStream os) throws IOException;
 
+    /**
+     * Get the number of bytes written by {@link #write(OutputStream)}.
+     * The default implementation writes this element to a counting stream, the nodes of this library compute the
+     * length without writing and cache it for dictionaries and lists.
+     *
+     * @return the length of the encoded element
+     */
+    @Contract(pure = true)
+    default long encodedLength() {
+        CountingOutputStream os = new CountingOutputStream();
+        try {
+            write(os);
+        } catch (IOException e) {
+            throw new BencodeException(e);
+        }
+        return os.getCount();
+    }
+
     @VisibleForTesting
     @NotNull
     @Contract(pure = true)
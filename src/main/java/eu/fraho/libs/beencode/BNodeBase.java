@@ -8,16 +8,63 @@ package eu.fraho.libs.beencode;
 
 import org.jetbrains.annotations.*;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.Objects;
 
 abstract class BNodeBase<T> implements BNode<T> {
-    @NotNull
-    private final T value;
+    // pinned to the value computed for the former layout, keeps previously serialized nodes readable
+    private static final long serialVersionUID = 3025150362269996159L;
+
+    @Nullable
+    private volatile T value;
+    // cached result of hashCode(), 0 if not computed yet
+    private transient int hash;
 
     public BNodeBase(@NotNull T value) {
         this.value = Objects.requireNonNull(value, "value may not be null");
     }
 
+    /**
+     * Create a node which computes its value on first access.
+     *
+     * @see #computeValue()
+     */
+    BNodeBase() {
+        this.value = null;
+    }
+
+    /**
+     * Compute the value of a node which was created without one.
+     * This method may be called more than once on concurrent access, so it has to return an equal result on each call.
+     *
+     * @return the value of this node
+     */
+    @NotNull
+    T computeValue() {
+        throw new IllegalStateException("value was not provided");
+    }
+
+    /**
+     * Compute the hash code of this node, which is cached by {@link #hashCode()}.
+     *
+     * @return the hash code
+     */
+    @Contract(pure = true)
+    int computeHashCode() {
+        // same as Objects.hash(getClass(), getValue()), without the varargs array
+        return 31 * (31 + getClass().hashCode()) + getValue().hashCode();
+    }
+
+    /**
+     * @return the encoded form kept by {@link BDict#cacheEncoded()} or {@link BList#cacheEncoded()}, null if not
+     * available
+     */
+    @Contract(pure = true)
+    byte @Nullable [] getEncoded() {
+        return null;
+    }
+
     @Override
     @Contract(pure = true)
     public boolean equals(@Nullable Object obj) {
@@ -25,25 +72,52 @@ abstract class BNodeBase<T> implements BNode<T> {
             return false;
         }
 
-        BNode<?> that = (BNode<?>) obj;
-        return Objects.equals(this.getValue(), that.getValue());
+        BNodeBase<?> that = (BNodeBase<?>) obj;
+        return !hashDiffers(that) && Objects.equals(this.getValue(), that.getValue());
+    }
+
+    /**
+     * @param other another node
+     * @return are the hash codes of both nodes already known and different, so the nodes cannot be equal?
+     */
+    @Contract(pure = true)
+    final boolean hashDiffers(@NotNull BNodeBase<?> other) {
+        int a = hash;
+        int b = other.hash;
+        return a != 0 && b != 0 && a != b;
     }
 
     @Override
     @Contract(pure = true)
     public int hashCode() {
-        return Objects.hash(getClass(), value);
+        // nodes are immutable, so a racy single check is sufficient
+        int result = hash;
+        if (result == 0) {
+            result = computeHashCode();
+            hash = result;
+        }
+        return result;
     }
 
     @Override
     @Contract(pure = true, value = "-> new")
     public String toString() {
-        return String.valueOf(value);
+        return String.valueOf(getValue());
     }
 
     @Override
     @Contract(pure = true)
     public @NotNull T getValue() {
-        return value;
+        T result = value;
+        if (result == null) {
+            value = result = computeValue();
+        }
+        return result;
+    }
+
+    private void writeObject(@NotNull ObjectOutputStream out) throws IOException {
+        // lazy nodes have to be computed, so the value is written
+        getValue();
+        out.defaultWriteObject();
     }
 }
@@ -14,6 +14,10 @@ import org.jetbrains.annotations.Range;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.Objects;
@@ -23,16 +27,65 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
     private static final long serialVersionUID = 100L;
     private static final byte SEPARATOR = ':';
 
+    // Arrays.compareUnsigned(byte[], int, int, byte[], int, int) of Java 9+, which is vectorized by the JIT
+    private static final @Nullable MethodHandle COMPARE_UNSIGNED = findCompareUnsigned();
+
+    // set for strings backed by a slice of an array or buffer, the content is copied on first access
+    private final transient @Nullable ByteBuffer view;
+
     private BString(byte @NotNull [] data) {
-        super(new byte[data.length]);
-        byte[] value = getValue();
-        System.arraycopy(data, 0, value, 0, data.length);
+        super(data);
+        this.view = null;
+    }
+
+    private BString(@NotNull ByteBuffer view) {
+        this.view = view;
+    }
+
+    /**
+     * Create a string using the given array as value, without a copy.
+     * The caller hands over the ownership and may not modify the array afterwards.
+     *
+     * @param data the value of the new string
+     * @return a new string
+     */
+    @Contract(pure = true, value = "_ -> new")
+    static @NotNull BString wrap(byte @NotNull [] data) {
+        return new BString(data);
+    }
+
+    /**
+     * Create a string backed by the given slice of an array, without a copy.
+     * The bytes are copied on first access of {@link #getValue()}, so the content of the array may not be modified
+     * afterwards.
+     *
+     * @param data   array containing the data
+     * @param offset index of the first byte
+     * @param length length of the string
+     * @return a new string
+     */
+    @Contract(pure = true, value = "_, _, _ -> new")
+    static @NotNull BString view(byte @NotNull [] data, int offset, int length) {
+        return view(ByteBuffer.wrap(data, offset, length));
+    }
+
+    /**
+     * Create a string backed by the remaining bytes of the given buffer, for example a memory mapped file.
+     * The bytes are copied to the heap on first access of {@link #getValue()}, so the content of the buffer may not
+     * be modified afterwards.
+     *
+     * @param buffer buffer containing the data
+     * @return a new string
+     */
+    @Contract(pure = true, value = "_ -> new")
+    static @NotNull BString view(@NotNull ByteBuffer buffer) {
+        return new BString(buffer.slice());
     }
 
     @Contract(pure = true, value = "_ -> new")
     public static @NotNull BString of(byte @NotNull [] data) {
         Objects.requireNonNull(data, "data may not be null");
-        return new BString(data);
+        return new BString(data.clone());
     }
 
     @Contract(pure = true, value = "_ -> new")
@@ -42,7 +95,7 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
 
     @Contract(pure = true, value = "_, _ -> new")
     public static @NotNull BString of(@NotNull CharSequence data, @NotNull Charset charset) {
-        return of(data.toString().getBytes(charset));
+        return new BString(data.toString().getBytes(charset));
     }
 
     @Contract(value = "_ -> new")
@@ -61,20 +114,9 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
 
         byte cur;
         while ((cur = (byte) is.read()) != SEPARATOR) {
-            if (!canParsePrefix(cur)) {
-                throw new BencodeException("Unexpected data, expected an digit but got a '"
-                    + cur + "'");
-            }
-            length = length * 10 + (cur - '0');
-        }
-
-        if (length > 0 && prefix == '0') {
-            throw new BencodeException("Leading zeros are not allowed.");
-        }
-
-        if (length > maxReadLen) {
-            throw new BencodeException("Denied attempt to read " + length + " bytes.");
+            length = appendLengthDigit(length, cur, maxReadLen);
         }
+        checkLength(prefix, length, maxReadLen);
 
         int ilength = (int) length;
         byte[] value = new byte[ilength];
@@ -88,7 +130,7 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
                     + (ilength - offset) + " bytes.");
             }
         }
-        return of(value);
+        return new BString(value);
     }
 
     @Contract(pure = true)
@@ -96,6 +138,76 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
         return prefix >= '0' && prefix <= '9';
     }
 
+    /**
+     * Add the next digit to the length of a string while parsing its length prefix.
+     *
+     * @param length     the length parsed so far
+     * @param digit      the next byte of the length prefix
+     * @param maxReadLen maximum allowed length
+     * @return the new length
+     * @throws BencodeException if the given byte is not a digit or the length exceeds the allowed maximum
+     */
+    @Contract(pure = true)
+    static long appendLengthDigit(long length, byte digit, int maxReadLen) {
+        if (!canParsePrefix(digit)) {
+            throw new BencodeException("Unexpected data, expected an digit but got a '"
+                + digit + "'");
+        }
+        long result = length * 10 + (digit - '0');
+        if (result > maxReadLen) {
+            throw new BencodeException("Denied attempt to read " + result + " bytes.");
+        }
+        return result;
+    }
+
+    /**
+     * Check the completely parsed length prefix of a string.
+     *
+     * @param prefix     first digit of the length
+     * @param length     the parsed length
+     * @param maxReadLen maximum allowed length
+     * @throws BencodeException if the length has leading zeros or exceeds the allowed maximum
+     */
+    @Contract(pure = true)
+    static void checkLength(byte prefix, long length, int maxReadLen) {
+        if (length > 0 && prefix == '0') {
+            throw new BencodeException("Leading zeros are not allowed.");
+        }
+        if (length > maxReadLen) {
+            throw new BencodeException("Denied attempt to read " + length + " bytes.");
+        }
+    }
+
+    /**
+     * Get the length of this string in bytes, without copying the content of a view.
+     *
+     * @return the length of this string
+     */
+    @Contract(pure = true)
+    public int length() {
+        return view != null ? view.remaining() : getValue().length;
+    }
+
+    /**
+     * Get a single byte of this string, without copying the content of a view.
+     *
+     * @param index index of the byte
+     * @return the byte at the given index
+     * @throws IndexOutOfBoundsException if the index is negative or not smaller than {@link #length()}
+     */
+    @Contract(pure = true)
+    public byte byteAt(int index) {
+        return view != null ? view.get(index) : getValue()[index];
+    }
+
+    @Override
+    byte @NotNull [] computeValue() {
+        ByteBuffer source = Objects.requireNonNull(view, "view may not be null").duplicate();
+        byte[] result = new byte[source.remaining()];
+        source.get(result);
+        return result;
+    }
+
     @Override
     @Contract(pure = true)
     public @NotNull String toString() {
@@ -107,23 +219,130 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
         return new String(getValue(), encoding);
     }
 
+    @Override
+    @Contract(pure = true)
+    public long encodedLength() {
+        int length = length();
+        return BInteger.numberLength(length) + 1L + length;
+    }
+
     @Override
     public void write(@NotNull OutputStream os) throws IOException {
-        os.write(String.valueOf(getValue().length).getBytes(DEFAULT_CHARSET));
+        EncoderOutputStream.writeNumber(os, length());
         os.write(SEPARATOR);
-        os.write(getValue());
+        if (view == null) {
+            os.write(getValue());
+        } else {
+            write(os, view);
+        }
+    }
+
+    /**
+     * Write the remaining bytes of the given buffer, without modifying its position.
+     *
+     * @param os     stream to write to
+     * @param buffer bytes to write
+     * @throws IOException if writing fails
+     */
+    static void write(@NotNull OutputStream os, @NotNull ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            os.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            EncoderOutputStream.wrap(os).write(buffer);
+        }
     }
 
     @Override
     @Contract(pure = true)
-    public int hashCode() {
-        return getClass().hashCode() + Arrays.hashCode(getValue());
+    int computeHashCode() {
+        if (view == null) {
+            return getClass().hashCode() + Arrays.hashCode(getValue());
+        }
+        // same as Arrays.hashCode, without copying the content of the view
+        int result = 1;
+        for (int i = 0, length = view.remaining(); i < length; i++) {
+            result = 31 * result + view.get(i);
+        }
+        return getClass().hashCode() + result;
+    }
+
+    /**
+     * Compare the raw bytes of two strings as unsigned values, which is the order of dictionary keys required by the
+     * bencode specification. Views are compared without copying their content.
+     *
+     * @param a first string
+     * @param b second string
+     * @return a negative number, zero or a positive number if the first string is less than, equal to or greater
+     * than the second string
+     */
+    @Contract(pure = true)
+    static int compareBytes(@NotNull BString a, @NotNull BString b) {
+        ByteBuffer left = a.view;
+        ByteBuffer right = b.view;
+        if ((left == null || left.hasArray()) && (right == null || right.hasArray())) {
+            byte[] leftArray = left == null ? a.getValue() : left.array();
+            int leftOffset = left == null ? 0 : left.arrayOffset() + left.position();
+            byte[] rightArray = right == null ? b.getValue() : right.array();
+            int rightOffset = right == null ? 0 : right.arrayOffset() + right.position();
+            return compareUnsigned(leftArray, leftOffset, a.length(), rightArray, rightOffset, b.length());
+        }
+        // direct buffers, like memory mapped files
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            int diff = (a.byteAt(i) & 0xff) - (b.byteAt(i) & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length() - b.length();
+    }
+
+    private static int compareUnsigned(byte @NotNull [] left, int leftOffset, int leftLength,
+                                       byte @NotNull [] right, int rightOffset, int rightLength) {
+        MethodHandle compare = COMPARE_UNSIGNED;
+        if (compare != null) {
+            try {
+                return (int) compare.invokeExact(left, leftOffset, leftOffset + leftLength,
+                    right, rightOffset, rightOffset + rightLength);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        int length = Math.min(leftLength, rightLength);
+        for (int i = 0; i < length; i++) {
+            byte x = left[leftOffset + i];
+            byte y = right[rightOffset + i];
+            if (x != y) {
+                return (x & 0xff) - (y & 0xff);
+            }
+        }
+        return leftLength - rightLength;
     }
 
+    private static @Nullable MethodHandle findCompareUnsigned() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Arrays.class, "compareUnsigned", MethodType.methodType(
+                int.class, byte[].class, int.class, int.class, byte[].class, int.class, int.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            // Java 8, use the plain loop
+            return null;
+        }
+    }
+
+    /**
+     * Compare the raw bytes of both strings as unsigned values, independent of any charset.
+     * This is the order of dictionary keys required by the bencode specification.
+     *
+     * @param o the other string
+     * @return a negative number, zero or a positive number if this string is less than, equal to or greater than
+     * the given string
+     */
     @Override
     @Contract(pure = true)
     public int compareTo(@NotNull BString o) {
-        return toString().compareTo(o.toString());
+        return compareBytes(this, o);
     }
 
     @Override
@@ -134,6 +353,9 @@ public final class BString extends BNodeBase<byte[]> implements Comparable<BStri
         }
 
         BString that = (BString) obj;
+        if (this.length() != that.length() || hashDiffers(that)) {
+            return false;
+        }
         return Arrays.equals(this.getValue(), that.getValue());
     }
 
@@ -0,0 +1,120 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decodes a batch of independent elements on several threads, used by {@link NodeFactory#decodeAll(java.util.List)}.
+ * <p>
+ * The batch is split into chunks, which are claimed one after another by the submitted tasks and by the calling
+ * thread. The calling thread does not only wait, so the batch is completed even if the executor is busy or runs on
+ * the same threads as the caller.
+ */
+final class BatchDecoder implements Runnable {
+    // chunks per thread, so threads finishing early can take over some of the work of slower ones
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final byte @NotNull [] @NotNull [] data;
+    private final @NotNull DecoderConfig config;
+    private final @Nullable BNode<?> @NotNull [] nodes;
+    private final @Nullable BencodeException @NotNull [] errors;
+    private final int chunks;
+    private final @NotNull AtomicInteger nextChunk = new AtomicInteger();
+    private final @NotNull CountDownLatch completed;
+    private final @NotNull AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private BatchDecoder(byte @NotNull [] @NotNull [] data, @NotNull DecoderConfig config, int chunks) {
+        this.data = data;
+        this.config = config;
+        this.nodes = new BNode<?>[data.length];
+        this.errors = new BencodeException[data.length];
+        this.chunks = chunks;
+        this.completed = new CountDownLatch(chunks);
+    }
+
+    /**
+     * @param data     encoded elements, may not contain null
+     * @param config   settings for decoding, applied to each element
+     * @param executor executor running the tasks besides the calling thread
+     * @return the decoded elements or their exceptions
+     */
+    static @NotNull BatchResult decode(byte @NotNull [] @NotNull [] data, @NotNull DecoderConfig config, @NotNull Executor executor) {
+        int threads = executor instanceof ForkJoinPool
+            ? ((ForkJoinPool) executor).getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+        int chunks = Math.min(data.length, threads * CHUNKS_PER_THREAD);
+        BatchDecoder decoder = new BatchDecoder(data, config, chunks);
+        // the calling thread is one of the workers
+        try {
+            for (int i = 1; i < Math.min(threads, chunks); i++) {
+                executor.execute(decoder);
+            }
+        } catch (RejectedExecutionException e) {
+            // the remaining chunks are decoded by the tasks submitted so far and the calling thread
+        }
+        decoder.run();
+        decoder.await();
+        return new BatchResult(decoder.nodes, decoder.errors);
+    }
+
+    @Override
+    public void run() {
+        int chunk;
+        while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+            try {
+                decodeChunk(chunk);
+            } catch (RuntimeException | Error e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                completed.countDown();
+            }
+        }
+    }
+
+    private void decodeChunk(int chunk) {
+        int start = (int) ((long) data.length * chunk / chunks);
+        int end = (int) ((long) data.length * (chunk + 1) / chunks);
+        for (int i = start; i < end; i++) {
+            try {
+                nodes[i] = NodeFactory.decode(data[i], config);
+            } catch (BencodeException e) {
+                errors[i] = e;
+            }
+        }
+    }
+
+    private void await() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                completed.await();
+                break;
+            } catch (InterruptedException e) {
+                // the chunks claimed by other threads are completed anyway, so wait for them
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e != null) {
+            throw (Error) e;
+        }
+    }
+}
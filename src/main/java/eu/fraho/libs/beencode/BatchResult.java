@@ -0,0 +1,95 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Result of decoding a batch of independent elements, see {@link NodeFactory#decodeAll(java.util.List)}.
+ * Each index holds either the decoded element or the exception thrown while decoding it, so a single invalid element
+ * does not abort the whole batch.
+ */
+public final class BatchResult {
+    private final @Nullable BNode<?> @NotNull [] nodes;
+    private final @Nullable BencodeException @NotNull [] errors;
+    private final int errorCount;
+
+    BatchResult(@Nullable BNode<?> @NotNull [] nodes, @Nullable BencodeException @NotNull [] errors) {
+        this.nodes = nodes;
+        this.errors = errors;
+        int count = 0;
+        for (BencodeException error : errors) {
+            if (error != null) {
+                count++;
+            }
+        }
+        this.errorCount = count;
+    }
+
+    /**
+     * @return count of elements of the batch
+     */
+    @Contract(pure = true)
+    public int size() {
+        return nodes.length;
+    }
+
+    /**
+     * @param index index within the batch
+     * @return the decoded element, null if decoding failed
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Contract(pure = true)
+    public @Nullable BNode<?> get(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * @param index index within the batch
+     * @return the exception thrown while decoding the element, null if decoding succeeded
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    @Contract(pure = true)
+    public @Nullable BencodeException getError(int index) {
+        return errors[index];
+    }
+
+    /**
+     * @return did decoding fail for any element?
+     */
+    @Contract(pure = true)
+    public boolean hasErrors() {
+        return errorCount > 0;
+    }
+
+    /**
+     * @return the exceptions of all failed elements by their index, in ascending order of the index
+     */
+    @Contract(pure = true, value = "-> new")
+    public @NotNull Map<Integer, BencodeException> getErrors() {
+        Map<Integer, BencodeException> result = new TreeMap<>();
+        for (int i = 0; i < errors.length; i++) {
+            BencodeException error = errors[i];
+            if (error != null) {
+                result.put(i, error);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    @Contract(pure = true, value = "-> new")
+    public String toString() {
+        return "BatchResult{size=" + nodes.length + ", errors=" + errorCount + "}";
+    }
+}
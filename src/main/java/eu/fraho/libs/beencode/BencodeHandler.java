@@ -0,0 +1,71 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+
+/**
+ * Callbacks for push style decoding, see {@link BencodeParser#accept(BencodeHandler)}.
+ * Implementations can build their own objects directly, without creating an intermediate tree of nodes.
+ * <p>
+ * The arrays given to {@link #onKey(byte[], int, int)} and {@link #onString(byte[], int, int)} are only valid during
+ * the call and may be reused or belong to the decoded source, so they must neither be kept nor modified.
+ */
+public interface BencodeHandler {
+    /**
+     * Start of a dictionary, followed by pairs of keys and values, terminated by {@link #onEnd()}.
+     */
+    void onDictStart();
+
+    /**
+     * Key of a dictionary entry, followed by the value of this entry.
+     *
+     * @param data   array containing the key
+     * @param offset index of the first byte
+     * @param length length of the key
+     */
+    void onKey(byte @NotNull [] data, int offset, int length);
+
+    /**
+     * A string value.
+     *
+     * @param data   array containing the string
+     * @param offset index of the first byte
+     * @param length length of the string
+     */
+    void onString(byte @NotNull [] data, int offset, int length);
+
+    /**
+     * An integer value within the range of a long.
+     *
+     * @param value the value
+     */
+    void onInteger(long value);
+
+    /**
+     * An integer value exceeding the range of a long.
+     * By default, such values are rejected.
+     *
+     * @param value the value
+     * @throws BencodeException if such values are not supported
+     */
+    default void onInteger(@NotNull BigInteger value) {
+        throw new BencodeException("Integer exceeds the range of a long: " + value);
+    }
+
+    /**
+     * Start of a list, followed by its elements, terminated by {@link #onEnd()}.
+     */
+    void onListStart();
+
+    /**
+     * End of the current dictionary or list.
+     */
+    void onEnd();
+}
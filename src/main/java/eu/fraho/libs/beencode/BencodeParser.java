@@ -0,0 +1,638 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Pull parser reading a single encoded element as a sequence of {@link Event events}, without building a tree of
+ * nodes. Unwanted values can be skipped with {@link #skipValue()}, so a single field can be extracted from a huge
+ * document with constant memory.
+ * <p>
+ * The content of strings is only read when requested by {@link #getString()}, otherwise it is skipped.
+ * Alternatively, the events can be pushed to a {@link BencodeHandler} with {@link #accept(BencodeHandler)}.
+ * The same validation rules as in {@link NodeFactory} apply, including the limits of the {@link DecoderConfig}
+ * given to the factory methods. Strings longer than {@link DecoderConfig#getMaxStringLength()} may still be skipped,
+ * but not read. Instances of this class are not threadsafe.
+ *
+ * <pre>{@code
+ * BencodeParser parser = BencodeParser.of(stream);
+ * parser.next(); // START_DICT
+ * while (parser.next() == BencodeParser.Event.KEY) {
+ *     if (parser.getString().equals(BString.of("announce"))) {
+ *         return parser.readValue();
+ *     }
+ *     parser.skipValue();
+ * }
+ * }</pre>
+ */
+public final class BencodeParser {
+    private static final byte SEPARATOR = ':';
+    private static final byte SUFFIX = 'e';
+    private static final byte FRAME_LIST = 0;
+    private static final byte FRAME_DICT_KEY = 1;
+    private static final byte FRAME_DICT_VALUE = 2;
+
+    private final @NotNull Input input;
+    private final @NotNull DecoderState state;
+    private final byte @NotNull [] scratch = new byte[BInteger.MAX_READ_LEN];
+    // type, count of entries or elements and previous key (strict mode only) of the open containers
+    private byte @NotNull [] frames = new byte[16];
+    private int @NotNull [] sizes = new int[16];
+    private @Nullable BString @NotNull [] keys = new BString[16];
+    private int depth;
+    // containers built by readValue(), created on first use
+    private @Nullable FrameStack builders;
+    private boolean finished;
+    private @Nullable Event event;
+    // length of the current string, if its content has not been read yet
+    private int pendingLength;
+    private @Nullable BString string;
+    private int integerLength;
+
+    private BencodeParser(@NotNull Input input, @NotNull DecoderConfig config) {
+        this.input = input;
+        this.state = new DecoderState(config);
+    }
+
+    /**
+     * Create a new parser reading from the given stream. The stream is read byte by byte and only as far as needed,
+     * so it should be buffered.
+     *
+     * @param is stream of data
+     * @return a new parser
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static @NotNull BencodeParser of(@NotNull InputStream is) {
+        return of(is, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Create a new parser reading from the given stream, see {@link #of(InputStream)}.
+     *
+     * @param is     stream of data
+     * @param config settings for decoding
+     * @return a new parser
+     */
+    @Contract(pure = true, value = "_, _ -> new")
+    public static @NotNull BencodeParser of(@NotNull InputStream is, @NotNull DecoderConfig config) {
+        Objects.requireNonNull(is, "stream may not be null");
+        Objects.requireNonNull(config, "config may not be null");
+        return new BencodeParser(new StreamInput(is), config);
+    }
+
+    /**
+     * Create a new parser reading from the given array.
+     *
+     * @param data encoded data
+     * @return a new parser
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static @NotNull BencodeParser of(byte @NotNull [] data) {
+        return of(data, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Create a new parser reading from the given array.
+     *
+     * @param data   encoded data
+     * @param config settings for decoding
+     * @return a new parser
+     */
+    @Contract(pure = true, value = "_, _ -> new")
+    public static @NotNull BencodeParser of(byte @NotNull [] data, @NotNull DecoderConfig config) {
+        Objects.requireNonNull(data, "data may not be null");
+        Objects.requireNonNull(config, "config may not be null");
+        return new BencodeParser(new BufferInput(ByteBuffer.wrap(data)), config);
+    }
+
+    /**
+     * Create a new parser reading from the remaining bytes of the given buffer.
+     * The position of the buffer is advanced while parsing.
+     *
+     * @param buffer encoded data
+     * @return a new parser
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static @NotNull BencodeParser of(@NotNull ByteBuffer buffer) {
+        return of(buffer, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Create a new parser reading from the remaining bytes of the given buffer.
+     * The position of the buffer is advanced while parsing.
+     *
+     * @param buffer encoded data
+     * @param config settings for decoding
+     * @return a new parser
+     */
+    @Contract(pure = true, value = "_, _ -> new")
+    public static @NotNull BencodeParser of(@NotNull ByteBuffer buffer, @NotNull DecoderConfig config) {
+        Objects.requireNonNull(buffer, "buffer may not be null");
+        Objects.requireNonNull(config, "config may not be null");
+        return new BencodeParser(new BufferInput(buffer), config);
+    }
+
+    /**
+     * @return are there more events to read?
+     */
+    @Contract(pure = true)
+    public boolean hasNext() {
+        return !finished;
+    }
+
+    /**
+     * Advance to the next event.
+     *
+     * @return the next event
+     * @throws IOException            if reading from the source fails
+     * @throws BencodeException       if the data is invalid or a limit of the config is exceeded
+     * @throws NoSuchElementException if the element has been read completely
+     */
+    public @NotNull Event next() throws IOException {
+        if (finished) {
+            throw new NoSuchElementException("The element has been read completely");
+        }
+        if (pendingLength > 0) {
+            input.skip(pendingLength);
+        }
+        pendingLength = 0;
+        string = null;
+
+        byte read = input.read();
+        if (depth > 0) {
+            byte frame = frames[depth - 1];
+            if (read == SUFFIX && frame != FRAME_DICT_VALUE) {
+                keys[--depth] = null;
+                state.leave();
+                completeValue();
+                return event = Event.END;
+            }
+            if (frame == FRAME_DICT_KEY) {
+                BDict.checkKeyPrefix(read);
+                readLength(read);
+                frames[depth - 1] = FRAME_DICT_VALUE;
+                event = Event.KEY;
+                if (state.config.isStrict()) {
+                    // the keys have to be compared, so they are read instead of skipped
+                    BString key = getString();
+                    BString previous = keys[depth - 1];
+                    if (previous != null) {
+                        BDict.checkKeyOrder(previous, key);
+                    }
+                    keys[depth - 1] = key;
+                }
+                state.checkSize(++sizes[depth - 1]);
+                return Event.KEY;
+            }
+            BDict.checkValuePrefix(read);
+            if (frame == FRAME_LIST) {
+                state.checkSize(++sizes[depth - 1]);
+            }
+        }
+        return event = startValue(read);
+    }
+
+    /**
+     * @return the current event, null if {@link #next()} has not been called yet
+     */
+    @Contract(pure = true)
+    public @Nullable Event getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the number of dictionaries and lists the current event is nested in
+     */
+    @Contract(pure = true)
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the value of the current {@link Event#KEY} or {@link Event#STRING} event.
+     * The content is read on the first call of this method.
+     *
+     * @return the string
+     * @throws IOException           if reading from the source fails
+     * @throws BencodeException      if the string is longer than {@link DecoderConfig#getMaxStringLength()}
+     * @throws IllegalStateException if the current event is not a key or string
+     */
+    public @NotNull BString getString() throws IOException {
+        if (event != Event.KEY && event != Event.STRING) {
+            throw new IllegalStateException("Current event is not a string: " + event);
+        }
+        if (string == null) {
+            checkStringLength();
+            string = BString.wrap(input.read(pendingLength));
+            pendingLength = 0;
+        }
+        return string;
+    }
+
+    /**
+     * Get the value of the current {@link Event#INTEGER} event.
+     *
+     * @return the integer
+     * @throws IllegalStateException if the current event is not an integer
+     */
+    @Contract(pure = true, value = "-> new")
+    public @NotNull BInteger getInteger() {
+        if (event != Event.INTEGER) {
+            throw new IllegalStateException("Current event is not an integer: " + event);
+        }
+        return BInteger.parse(scratch, 0, integerLength);
+    }
+
+    /**
+     * Skip the value belonging to the current event, without creating any nodes:
+     * <ul>
+     *     <li>before the first event: the whole element</li>
+     *     <li>{@link Event#KEY}: the value of this key</li>
+     *     <li>{@link Event#START_DICT}, {@link Event#START_LIST}: the remaining entries and the {@link Event#END}</li>
+     *     <li>other events: nothing, as the value is already complete</li>
+     * </ul>
+     *
+     * @throws IOException      if reading from the source fails
+     * @throws BencodeException if the data is invalid
+     */
+    public void skipValue() throws IOException {
+        Event current = event;
+        if (current == null || current == Event.KEY) {
+            current = next();
+        }
+        if (current == Event.START_DICT || current == Event.START_LIST) {
+            int target = depth - 1;
+            while (depth > target) {
+                next();
+            }
+        }
+    }
+
+    /**
+     * Read the value belonging to the current event as node, see {@link #skipValue()} which value is read.
+     *
+     * @return the value
+     * @throws IOException           if reading from the source fails
+     * @throws BencodeException      if the data is invalid or a limit of the config is exceeded
+     * @throws IllegalStateException if the current event is {@link Event#END}
+     */
+    @Contract(value = "-> new")
+    public @NotNull BNode<?> readValue() throws IOException {
+        Event current = event;
+        if (current == null || current == Event.KEY) {
+            current = next();
+        }
+        return readValue(current);
+    }
+
+    /**
+     * Read all remaining events of the element and report them to the given handler.
+     * The content of strings is passed without creating nodes, integers are passed as primitive values if possible.
+     *
+     * @param handler handler to receive the events
+     * @throws IOException      if reading from the source fails
+     * @throws BencodeException if the data is invalid
+     */
+    public void accept(@NotNull BencodeHandler handler) throws IOException {
+        Objects.requireNonNull(handler, "handler may not be null");
+        while (!finished) {
+            switch (next()) {
+                case START_DICT:
+                    handler.onDictStart();
+                    break;
+                case KEY:
+                    if (string != null) {
+                        // already read in strict mode
+                        byte[] key = string.getValue();
+                        handler.onKey(key, 0, key.length);
+                    } else {
+                        handler.onKey(readSlice(), input.sliceOffset, input.sliceLength);
+                    }
+                    break;
+                case STRING:
+                    handler.onString(readSlice(), input.sliceOffset, input.sliceLength);
+                    break;
+                case INTEGER:
+                    if (BInteger.fitsLong(scratch, 0, integerLength)) {
+                        handler.onInteger(BInteger.parseLong(scratch, 0, integerLength));
+                    } else {
+                        handler.onInteger(getInteger().getValue());
+                    }
+                    break;
+                case START_LIST:
+                    handler.onListStart();
+                    break;
+                case END:
+                    handler.onEnd();
+                    break;
+            }
+        }
+    }
+
+    private @NotNull BNode<?> readValue(@NotNull Event current) throws IOException {
+        if (current == Event.END) {
+            throw new IllegalStateException("Current event has no value: " + current);
+        }
+        FrameStack stack = builders;
+        if (stack == null) {
+            // the limits are already checked by next(), the frames only build the containers
+            builders = stack = new FrameStack(new DecoderState(DecoderConfig.DEFAULT));
+        }
+        // discard the containers left over by a failed call
+        stack.clear();
+        while (true) {
+            BNode<?> value = null;
+            if (current == Event.START_DICT) {
+                stack.push(true);
+            } else if (current == Event.START_LIST) {
+                stack.push(false);
+            } else if (current == Event.STRING) {
+                value = getString();
+            } else {
+                value = getInteger();
+            }
+            // add completed values to their container, until the next value starts
+            while (true) {
+                if (value != null) {
+                    if (stack.isEmpty()) {
+                        return value;
+                    }
+                    stack.add(value);
+                }
+                current = next();
+                if (current == Event.KEY) {
+                    stack.key(getString());
+                    current = next();
+                    break;
+                } else if (current != Event.END) {
+                    stack.element();
+                    break;
+                }
+                value = stack.pop();
+            }
+        }
+    }
+
+    private @NotNull Event startValue(byte prefix) throws IOException {
+        if (BDict.canParsePrefix(prefix)) {
+            push(FRAME_DICT_KEY);
+            return Event.START_DICT;
+        } else if (BInteger.canParsePrefix(prefix)) {
+            readInteger();
+            completeValue();
+            return Event.INTEGER;
+        } else if (BString.canParsePrefix(prefix)) {
+            readLength(prefix);
+            completeValue();
+            return Event.STRING;
+        } else if (BList.canParsePrefix(prefix)) {
+            push(FRAME_LIST);
+            return Event.START_LIST;
+        } else {
+            throw new BencodeException("No parser found for prefix '" + prefix + "'");
+        }
+    }
+
+    private void readInteger() throws IOException {
+        int length = 0;
+        byte read;
+        while ((read = input.read()) != SUFFIX) {
+            if (length == BInteger.MAX_READ_LEN - 1) {
+                throw new BencodeException("Invalid data, did not find suffix within " + BInteger.MAX_READ_LEN + " bytes");
+            }
+            scratch[length++] = read;
+        }
+        BInteger.validate(scratch, 0, length);
+        state.count(length + 2L);
+        integerLength = length;
+    }
+
+    private byte @NotNull [] readSlice() throws IOException {
+        checkStringLength();
+        byte[] result = input.readSlice(pendingLength);
+        pendingLength = 0;
+        return result;
+    }
+
+    private void readLength(byte prefix) throws IOException {
+        long length = prefix - '0';
+        int digits = 1;
+
+        byte cur;
+        while ((cur = input.read()) != SEPARATOR) {
+            // larger strings are only denied when they are read, they may still be skipped
+            length = BString.appendLengthDigit(length, cur, Integer.MAX_VALUE);
+            digits++;
+        }
+        BString.checkLength(prefix, length, Integer.MAX_VALUE);
+        state.count(digits + 1 + length);
+        pendingLength = (int) length;
+    }
+
+    private void checkStringLength() {
+        if (pendingLength > state.config.getMaxStringLength()) {
+            throw new BencodeException("Denied attempt to read " + pendingLength + " bytes.");
+        }
+    }
+
+    private void push(byte frame) {
+        // checks the depth before growing the arrays, so they are bounded by the limit
+        state.enter();
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+            sizes = Arrays.copyOf(sizes, depth * 2);
+            keys = Arrays.copyOf(keys, depth * 2);
+        }
+        frames[depth] = frame;
+        sizes[depth] = 0;
+        depth++;
+    }
+
+    private void completeValue() {
+        if (depth == 0) {
+            finished = true;
+        } else if (frames[depth - 1] == FRAME_DICT_VALUE) {
+            frames[depth - 1] = FRAME_DICT_KEY;
+        }
+    }
+
+    /**
+     * Events reported by the parser
+     */
+    public enum Event {
+        /**
+         * Start of a dictionary, followed by pairs of {@link #KEY} and value events, terminated by {@link #END}
+         */
+        START_DICT,
+        /**
+         * Key of a dictionary entry, see {@link #getString()}
+         */
+        KEY,
+        /**
+         * Start of a list, followed by the value events of its elements, terminated by {@link #END}
+         */
+        START_LIST,
+        /**
+         * A string value, see {@link #getString()}
+         */
+        STRING,
+        /**
+         * An integer value, see {@link #getInteger()}
+         */
+        INTEGER,
+        /**
+         * End of the current dictionary or list
+         */
+        END
+    }
+
+    private abstract static class Input {
+        // result of the last readSlice() call
+        int sliceOffset;
+        int sliceLength;
+        private byte @NotNull [] scratch = new byte[64];
+
+        abstract byte read() throws IOException;
+
+        abstract byte @NotNull [] read(int length) throws IOException;
+
+        abstract void read(byte @NotNull [] target, int length) throws IOException;
+
+        abstract void skip(int length) throws IOException;
+
+        /**
+         * Read the given number of bytes without allocating a new array.
+         * The bytes are valid until the next read and stored in the returned array, starting at {@link #sliceOffset}.
+         */
+        byte @NotNull [] readSlice(int length) throws IOException {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            read(scratch, length);
+            sliceOffset = 0;
+            sliceLength = length;
+            return scratch;
+        }
+    }
+
+    private static final class StreamInput extends Input {
+        private final @NotNull InputStream is;
+
+        private StreamInput(@NotNull InputStream is) {
+            this.is = is;
+        }
+
+        @Override
+        public byte read() throws IOException {
+            int read = is.read();
+            if (read < 0) {
+                throw new BencodeException("Premature end of stream, expected more data.");
+            }
+            return (byte) read;
+        }
+
+        @Override
+        public byte @NotNull [] read(int length) throws IOException {
+            byte[] result = new byte[length];
+            read(result, length);
+            return result;
+        }
+
+        @Override
+        public void read(byte @NotNull [] target, int length) throws IOException {
+            int offset = 0;
+            while (offset != length) {
+                int temp = is.read(target, offset, length - offset);
+                if (temp < 0) {
+                    throw new BencodeException("Premature end of stream, missing "
+                        + (length - offset) + " bytes.");
+                }
+                offset += temp;
+            }
+        }
+
+        @Override
+        public void skip(int length) throws IOException {
+            long remaining = length;
+            while (remaining > 0) {
+                long skipped = is.skip(remaining);
+                if (skipped > 0) {
+                    remaining -= skipped;
+                } else {
+                    // skip() does not report the end of the stream, check with a single read
+                    read();
+                    remaining--;
+                }
+            }
+        }
+    }
+
+    private static final class BufferInput extends Input {
+        private final @NotNull ByteBuffer buffer;
+
+        private BufferInput(@NotNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public byte read() {
+            if (!buffer.hasRemaining()) {
+                throw new BencodeException("Premature end of stream, expected more data.");
+            }
+            return buffer.get();
+        }
+
+        @Override
+        public byte @NotNull [] read(int length) {
+            byte[] result = new byte[length];
+            read(result, length);
+            return result;
+        }
+
+        @Override
+        public void read(byte @NotNull [] target, int length) {
+            checkRemaining(length);
+            buffer.get(target, 0, length);
+        }
+
+        @Override
+        byte @NotNull [] readSlice(int length) throws IOException {
+            if (!buffer.hasArray()) {
+                return super.readSlice(length);
+            }
+            // share the backing array instead of copying
+            checkRemaining(length);
+            sliceOffset = buffer.arrayOffset() + buffer.position();
+            sliceLength = length;
+            buffer.position(buffer.position() + length);
+            return buffer.array();
+        }
+
+        @Override
+        public void skip(int length) {
+            checkRemaining(length);
+            buffer.position(buffer.position() + length);
+        }
+
+        private void checkRemaining(int length) {
+            if (buffer.remaining() < length) {
+                throw new BencodeException("Premature end of stream, missing "
+                    + (length - buffer.remaining()) + " bytes.");
+            }
+        }
+    }
+}
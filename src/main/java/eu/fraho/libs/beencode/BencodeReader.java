@@ -0,0 +1,336 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reader for a sequence of elements written back-to-back without any delimiter, like on a persistent connection or
+ * in a log file.
+ * <p>
+ * The stream is read in large blocks into an internal buffer, which is decoded with an {@link IncrementalDecoder}.
+ * The end of the stream between two elements is the regular end of the sequence, while the end of the stream within an
+ * element is an error. The elements can be read one by one with {@link #read()}, or with an {@link #iterator()} or
+ * {@link #stream()}. Optionally, a bounded number of elements is decoded ahead on another thread, see
+ * {@link #stream(int, Executor)}.
+ * <p>
+ * After an exception, the reader cannot be used any more. Instances of this class are not threadsafe.
+ *
+ * <pre>{@code
+ * try (BencodeReader reader = new BencodeReader(Files.newInputStream(path))) {
+ *     reader.stream().forEach(this::handle);
+ * }
+ * }</pre>
+ */
+public final class BencodeReader implements Closeable, Iterable<BNode<?>> {
+    /**
+     * Size of the buffer, if none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+    // how long a thread waits on the prefetching queue, before checking if the reader was closed or the other side
+    // stopped
+    private static final long PREFETCH_POLL_MILLIS = 100;
+
+    private final @NotNull InputStream is;
+    private final @NotNull IncrementalDecoder decoder;
+    private final @NotNull ByteBuffer buffer;
+    private boolean eof;
+    private volatile boolean closed;
+
+    /**
+     * Create a new reader using {@link DecoderConfig#DEFAULT} and a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param is stream to read from, does not need to be buffered
+     */
+    public BencodeReader(@NotNull InputStream is) {
+        this(is, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Create a new reader using a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param is     stream to read from, does not need to be buffered
+     * @param config settings for decoding, applied to each element
+     */
+    public BencodeReader(@NotNull InputStream is, @NotNull DecoderConfig config) {
+        this(is, config, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new reader.
+     *
+     * @param is         stream to read from, does not need to be buffered
+     * @param config     settings for decoding, applied to each element
+     * @param bufferSize size of the internal buffer
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public BencodeReader(@NotNull InputStream is, @NotNull DecoderConfig config, int bufferSize) {
+        Objects.requireNonNull(is, "is may not be null");
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("bufferSize has to be positive: " + bufferSize);
+        }
+        this.is = is;
+        this.decoder = new IncrementalDecoder(config);
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.buffer.flip();
+    }
+
+    /**
+     * Read the next element.
+     *
+     * @return the next element, null at the end of the stream
+     * @throws IOException      if reading fails or the reader is closed
+     * @throws BencodeException if the data is invalid or the stream ends within an element
+     */
+    public @Nullable BNode<?> read() throws IOException {
+        if (closed) {
+            throw new IOException("Reader is closed");
+        }
+        while (decoder.feed(buffer) != IncrementalDecoder.Status.COMPLETE) {
+            if (eof) {
+                if (decoder.isInProgress()) {
+                    throw new BencodeException("Premature end of stream, expected more data.");
+                }
+                return null;
+            }
+            fill();
+        }
+        return decoder.takeResult();
+    }
+
+    /**
+     * Iterate over the remaining elements. An {@link IOException} is thrown as {@link UncheckedIOException}.
+     *
+     * @return a new iterator
+     */
+    @Override
+    @Contract(value = "-> new")
+    public @NotNull Iterator<BNode<?>> iterator() {
+        return new ReadingIterator();
+    }
+
+    /**
+     * Stream the remaining elements. An {@link IOException} is thrown as {@link UncheckedIOException}.
+     * Closing the stream closes this reader.
+     *
+     * @return a new sequential stream
+     */
+    @Contract(value = "-> new")
+    public @NotNull Stream<BNode<?>> stream() {
+        return toStream(iterator());
+    }
+
+    /**
+     * Stream the remaining elements, while up to the given number of elements is read and decoded ahead by a task
+     * submitted to the given executor. Decoding is stopped when the queue is full, so the memory used is bounded.
+     * An {@link IOException} is thrown as {@link UncheckedIOException}, other exceptions are rethrown as they are.
+     * Closing the stream closes this reader, which stops the task.
+     * <p>
+     * This reader may not be used otherwise while the elements are prefetched.
+     *
+     * @param prefetch maximum number of elements decoded ahead
+     * @param executor executor running the decoding task
+     * @return a new sequential stream
+     * @throws IllegalArgumentException if the prefetch is not positive
+     */
+    @Contract(value = "_, _ -> new")
+    public @NotNull Stream<BNode<?>> stream(int prefetch, @NotNull Executor executor) {
+        Objects.requireNonNull(executor, "executor may not be null");
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("prefetch has to be positive: " + prefetch);
+        }
+        PrefetchingIterator iterator = new PrefetchingIterator(prefetch);
+        executor.execute(iterator);
+        return toStream(iterator);
+    }
+
+    /**
+     * Close the underlying stream. Closing a closed reader has no effect.
+     *
+     * @throws IOException if closing the stream fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            is.close();
+        }
+    }
+
+    private @NotNull Stream<BNode<?>> toStream(@NotNull Iterator<BNode<?>> iterator) {
+        Spliterator<BNode<?>> spliterator = Spliterators.spliteratorUnknownSize(iterator,
+            Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void fill() throws IOException {
+        buffer.clear();
+        int read = is.read(buffer.array(), 0, buffer.capacity());
+        if (read < 0) {
+            eof = true;
+            read = 0;
+        }
+        buffer.limit(read);
+    }
+
+    private final class ReadingIterator implements Iterator<BNode<?>> {
+        private @Nullable BNode<?> next;
+        private boolean finished;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                finished = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public @NotNull BNode<?> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BNode<?> result = next;
+            next = null;
+            //noinspection ConstantConditions
+            return result;
+        }
+    }
+
+    private final class PrefetchingIterator implements Iterator<BNode<?>>, Runnable {
+        // marks the end of the stream within the queue
+        private final @NotNull Object end = new Object();
+        private final @NotNull BlockingQueue<Object> queue;
+        // set when the prefetching task returns, whether or not it queued a final item
+        private volatile boolean stopped;
+        private @Nullable Object next;
+
+        private PrefetchingIterator(int prefetch) {
+            this.queue = new ArrayBlockingQueue<>(prefetch);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Object item;
+                do {
+                    item = readItem();
+                } while (offer(item) && item instanceof BNode);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stopped = true;
+            }
+        }
+
+        /**
+         * @return the next element, the end marker or the exception or error thrown while reading
+         */
+        private @NotNull Object readItem() {
+            try {
+                BNode<?> node = read();
+                return node != null ? node : end;
+            } catch (Throwable e) {
+                // errors are passed on as well, the consumer would wait forever otherwise
+                return e;
+            }
+        }
+
+        /**
+         * @return was the item queued, false if this reader was closed while waiting for space
+         */
+        private boolean offer(@NotNull Object item) throws InterruptedException {
+            while (!closed) {
+                if (queue.offer(item, PREFETCH_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the next element", e);
+                }
+            }
+            if (next instanceof IOException) {
+                throw new UncheckedIOException((IOException) next);
+            } else if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            } else if (next instanceof Error) {
+                throw (Error) next;
+            }
+            return next != end;
+        }
+
+        /**
+         * @return the next item of the queue
+         * @throws UncheckedIOException if the prefetching task stopped without queueing a final item, because this
+         *                              reader was closed or the task was interrupted
+         */
+        private @NotNull Object take() throws InterruptedException {
+            while (true) {
+                // read before polling, so an item queued right before stopping is not missed
+                boolean wasStopped = stopped;
+                Object item = queue.poll(PREFETCH_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (item != null) {
+                    return item;
+                } else if (wasStopped) {
+                    throw new UncheckedIOException(new IOException(closed
+                        ? "Reader is closed"
+                        : "Prefetching stopped before the end of the stream"));
+                }
+            }
+        }
+
+        @Override
+        public @NotNull BNode<?> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            BNode<?> result = (BNode<?>) next;
+            next = null;
+            //noinspection ConstantConditions
+            return result;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+/**
+ * Encoder collecting the output in an internal buffer, which is passed to the target in large blocks.
+ * <p>
+ * The nodes write each prefix, suffix and length on its own. Written to an unbuffered target like a
+ * {@link java.io.FileOutputStream} or the stream of a socket, each of these small writes becomes a system call.
+ * This writer copies them into its buffer instead, and only writes to the target when the buffer is full.
+ * Strings larger than the buffer are passed to the target directly, without copying them into the buffer.
+ * <p>
+ * The buffer is reused for all elements written with the same writer. Call {@link #flush()} to pass the buffered
+ * data to the target, or {@link #close()} to flush and close the target.
+ * Instances are not thread safe.
+ */
+public final class BencodeWriter implements Closeable, Flushable {
+    /**
+     * Size of the buffer, if none is given.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 65536;
+
+    private final @NotNull ChunkOutputStream out;
+    private boolean closed;
+
+    /**
+     * Create a new writer with a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param os stream to write to
+     */
+    public BencodeWriter(@NotNull OutputStream os) {
+        this(os, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new writer.
+     *
+     * @param os         stream to write to
+     * @param bufferSize size of the internal buffer
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public BencodeWriter(@NotNull OutputStream os, int bufferSize) {
+        Objects.requireNonNull(os, "os may not be null");
+        this.out = new ChunkOutputStream(os, null, bufferSize);
+    }
+
+    /**
+     * Create a new writer with a buffer of {@link #DEFAULT_BUFFER_SIZE} bytes.
+     *
+     * @param channel blocking channel to write to
+     */
+    public BencodeWriter(@NotNull WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new writer.
+     *
+     * @param channel    blocking channel to write to
+     * @param bufferSize size of the internal buffer
+     * @throws IllegalArgumentException if the buffer size is not positive
+     */
+    public BencodeWriter(@NotNull WritableByteChannel channel, int bufferSize) {
+        Objects.requireNonNull(channel, "channel may not be null");
+        this.out = new ChunkOutputStream(null, channel, bufferSize);
+    }
+
+    /**
+     * Encode the given element. The output may stay in the buffer until the next {@link #flush()}.
+     *
+     * @param node element to write
+     * @throws IOException if writing to the target fails or the writer is closed
+     */
+    public void write(@NotNull BNode<?> node) throws IOException {
+        checkOpen();
+        node.write(out);
+    }
+
+    /**
+     * Encode the given element in canonical form, see {@link NodeFactory#encodeCanonical(BNode)}.
+     * The output may stay in the buffer until the next {@link #flush()}.
+     *
+     * @param node element to write
+     * @throws IOException if writing to the target fails or the writer is closed
+     */
+    public void writeCanonical(@NotNull BNode<?> node) throws IOException {
+        checkOpen();
+        NodeFactory.writeCanonical(node, out);
+    }
+
+    /**
+     * Pass the buffered data to the target and flush it.
+     *
+     * @throws IOException if writing to the target fails or the writer is closed
+     */
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        out.flush();
+    }
+
+    /**
+     * Pass the buffered data to the target and close it. Closing a closed writer has no effect.
+     *
+     * @throws IOException if writing to the target or closing it fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+    }
+
+    private static final class ChunkOutputStream extends EncoderOutputStream {
+        private final @Nullable OutputStream os;
+        private final @Nullable WritableByteChannel channel;
+        private final byte @NotNull [] buffer;
+        private int size;
+
+        private ChunkOutputStream(@Nullable OutputStream os, @Nullable WritableByteChannel channel, int bufferSize) {
+            if (bufferSize <= 0) {
+                throw new IllegalArgumentException("bufferSize has to be positive: " + bufferSize);
+            }
+            this.os = os;
+            this.channel = channel;
+            this.buffer = new byte[bufferSize];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == buffer.length) {
+                drainBuffer();
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            if (len >= buffer.length) {
+                drainBuffer();
+                if (os != null) {
+                    os.write(b, off, len);
+                } else {
+                    drain(ByteBuffer.wrap(b, off, len));
+                }
+                return;
+            }
+            if (len > buffer.length - size) {
+                drainBuffer();
+            }
+            System.arraycopy(b, off, buffer, size, len);
+            size += len;
+        }
+
+        @Override
+        void write(@NotNull ByteBuffer source) throws IOException {
+            if (source.hasArray()) {
+                write(source.array(), source.arrayOffset() + source.position(), source.remaining());
+            } else if (channel != null && source.remaining() >= buffer.length) {
+                // the channel reads the buffer directly, without any copy
+                drainBuffer();
+                drain(source.duplicate());
+            } else {
+                ByteBuffer remaining = source.duplicate();
+                while (remaining.hasRemaining()) {
+                    if (size == buffer.length) {
+                        drainBuffer();
+                    }
+                    int length = Math.min(buffer.length - size, remaining.remaining());
+                    remaining.get(buffer, size, length);
+                    size += length;
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            drainBuffer();
+            if (os != null) {
+                os.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drainBuffer();
+            } finally {
+                if (os != null) {
+                    os.close();
+                } else {
+                    //noinspection ConstantConditions
+                    channel.close();
+                }
+            }
+        }
+
+        private void drainBuffer() throws IOException {
+            if (size > 0) {
+                if (os != null) {
+                    os.write(buffer, 0, size);
+                } else {
+                    drain(ByteBuffer.wrap(buffer, 0, size));
+                }
+                size = 0;
+            }
+        }
+
+        private void drain(@NotNull ByteBuffer source) throws IOException {
+            //noinspection ConstantConditions
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Decoding engine working directly on a slice of a byte array.
+ */
+final class ByteArrayDecoder extends DecoderBase {
+    private final byte @NotNull [] data;
+
+    /**
+     * @param data   array to read from
+     * @param offset index of the first byte to read
+     * @param length number of bytes to read at most
+     * @param views  create strings as views into the array, only allowed if the array is never modified
+     * @param lazy   create lazy dictionaries and lists, only allowed if the array is never modified
+     * @param config settings for decoding
+     */
+    ByteArrayDecoder(byte @NotNull [] data, int offset, int length, boolean views, boolean lazy, @NotNull DecoderConfig config) {
+        super(offset, offset + length, views, lazy, config);
+        if (offset < 0 || length < 0 || offset > data.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + " and length " + length
+                + " out of bounds for array with length " + data.length);
+        }
+        this.data = data;
+    }
+
+    @Override
+    byte get(int index) {
+        return data[index];
+    }
+
+    @Override
+    byte @NotNull [] copy(int index, int length) {
+        return Arrays.copyOfRange(data, index, index + length);
+    }
+
+    @Override
+    @NotNull ByteBuffer slice(int index, int length) {
+        return ByteBuffer.wrap(data, index, length);
+    }
+
+    @Override
+    @NotNull DecoderBase range(int index, int limit) {
+        return new ByteArrayDecoder(data, index, limit - index, views, lazy, config);
+    }
+}
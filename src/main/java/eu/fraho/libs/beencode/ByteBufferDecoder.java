@@ -0,0 +1,62 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decoding engine working directly on the remaining bytes of a buffer, for example a direct or read-only buffer.
+ * The position of the given buffer is not modified.
+ */
+final class ByteBufferDecoder extends DecoderBase {
+    private final @NotNull ByteBuffer buffer;
+
+    /**
+     * @param buffer buffer to read from
+     * @param views  create strings as views into the buffer, only allowed if the buffer is never modified
+     * @param lazy   create lazy dictionaries and lists, only allowed if the buffer is never modified
+     * @param config settings for decoding
+     */
+    ByteBufferDecoder(@NotNull ByteBuffer buffer, boolean views, boolean lazy, @NotNull DecoderConfig config) {
+        this(buffer, buffer.position(), buffer.limit(), views, lazy, config);
+    }
+
+    private ByteBufferDecoder(@NotNull ByteBuffer buffer, int start, int limit, boolean views, boolean lazy,
+                              @NotNull DecoderConfig config) {
+        super(start, limit, views, lazy, config);
+        // work on an own view, so we can use relative bulk reads without touching the callers buffer
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    byte get(int index) {
+        return buffer.get(index);
+    }
+
+    @Override
+    byte @NotNull [] copy(int index, int length) {
+        byte[] result = new byte[length];
+        buffer.position(index);
+        buffer.get(result);
+        return result;
+    }
+
+    @Override
+    @NotNull ByteBuffer slice(int index, int length) {
+        ByteBuffer result = buffer.duplicate();
+        result.position(index);
+        result.limit(index + length);
+        return result;
+    }
+
+    @Override
+    @NotNull DecoderBase range(int index, int limit) {
+        return new ByteBufferDecoder(buffer, index, limit, views, lazy, config);
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stream writing directly into a buffer, starting at its current position.
+ * A {@link java.nio.BufferOverflowException} is thrown when the buffer is full.
+ */
+final class ByteBufferOutputStream extends EncoderOutputStream {
+    private final @NotNull ByteBuffer buffer;
+
+    ByteBufferOutputStream(@NotNull ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) {
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    void write(@NotNull ByteBuffer source) {
+        buffer.put(source.duplicate());
+    }
+}
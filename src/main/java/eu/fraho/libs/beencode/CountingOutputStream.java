@@ -0,0 +1,35 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Stream discarding the written bytes, only counting them.
+ */
+final class CountingOutputStream extends EncoderOutputStream {
+    private long count;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) {
+        count += len;
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    @Contract(pure = true)
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoding engine working on a random access source of bytes, like an array or a buffer.
+ * <p>
+ * In contrast to the stream based {@code of(InputStream, byte)} methods of the node classes, this decoder keeps an
+ * index into the source and reads the bytes directly, without a stream in between.
+ * The validation rules are the same as for the stream based methods.
+ * <p>
+ * In lazy mode, dictionaries and lists are only scanned and validated. The returned nodes keep a decoder for their
+ * range of the source and decode their direct children on first access.
+ */
+abstract class DecoderBase {
+    // smaller strings are copied right away, a view would cost more than it saves
+    private static final int MIN_VIEW_LENGTH = 64;
+    private static final byte SEPARATOR = ':';
+    private static final byte SUFFIX = 'e';
+    // markers for the previous key of a skipped container
+    private static final int NO_KEY = -1;
+    private static final int LIST = -2;
+
+    final int start;
+    final int limit;
+    final boolean views;
+    final boolean lazy;
+    final @NotNull DecoderConfig config;
+    private final @NotNull DecoderState state;
+    private final byte @NotNull [] scratch = new byte[BInteger.MAX_READ_LEN];
+    // stack of the containers being decoded or skipped, created on first use and reused afterwards
+    private FrameStack frames;
+    private int @NotNull [] skipFrames = new int[0];
+    private int position;
+
+    /**
+     * @param start  index of the first byte to read
+     * @param limit  index of the first byte not to read
+     * @param views  create strings as views into the source, only allowed if the source is never modified
+     * @param lazy   create lazy dictionaries and lists, only allowed if the source is never modified
+     * @param config settings for decoding
+     */
+    DecoderBase(int start, int limit, boolean views, boolean lazy, @NotNull DecoderConfig config) {
+        this.start = start;
+        this.position = start;
+        this.limit = limit;
+        this.views = views;
+        this.lazy = lazy;
+        this.config = config;
+        this.state = new DecoderState(config);
+    }
+
+    /**
+     * @param index absolute index of the byte
+     * @return the byte at the given index
+     */
+    abstract byte get(int index);
+
+    /**
+     * @param index  absolute index of the first byte
+     * @param length number of bytes to copy
+     * @return a new array containing the requested bytes
+     */
+    abstract byte @NotNull [] copy(int index, int length);
+
+    /**
+     * @param index  absolute index of the first byte
+     * @param length number of bytes within the slice
+     * @return a new buffer sharing the requested bytes
+     */
+    abstract @NotNull ByteBuffer slice(int index, int length);
+
+    /**
+     * @param index absolute index of the first byte
+     * @param limit absolute index of the first byte not to read
+     * @return a new decoder for the given range of the same source, using the same settings
+     */
+    abstract @NotNull DecoderBase range(int index, int limit);
+
+    /**
+     * @return the number of bytes read so far
+     */
+    @Contract(pure = true)
+    final int consumed() {
+        return position - start;
+    }
+
+    /**
+     * Decode the next element.
+     *
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(value = "-> new")
+    final @NotNull BNode<?> decode() {
+        return decode(next());
+    }
+
+    /**
+     * Decode the entries of the dictionary starting at the current position, used by lazy dictionaries.
+     *
+     * @return the decoded entries, unmodifiable
+     */
+    @Contract(value = "-> new")
+    final @NotNull Map<BString, BNode<?>> decodeDictEntries() {
+        byte prefix = next();
+        if (!BDict.canParsePrefix(prefix)) {
+            throw new IllegalStateException("Expected a dictionary");
+        }
+        return ((BDict) decodeTree(prefix)).getValue();
+    }
+
+    /**
+     * Decode the elements of the list starting at the current position, used by lazy lists.
+     *
+     * @return the decoded elements, unmodifiable
+     */
+    @Contract(value = "-> new")
+    final @NotNull List<BNode<?>> decodeListElements() {
+        byte prefix = next();
+        if (!BList.canParsePrefix(prefix)) {
+            throw new IllegalStateException("Expected a list");
+        }
+        return ((BList) decodeTree(prefix)).getValue();
+    }
+
+    /**
+     * Write the encoded bytes of the whole range of this decoder, used by lazy nodes.
+     *
+     * @param os stream to write to
+     * @throws IOException if writing fails
+     */
+    final void writeRange(@NotNull OutputStream os) throws IOException {
+        BString.write(os, slice(start, limit - start));
+    }
+
+    private @NotNull BNode<?> decode(byte prefix) {
+        if (lazy && (BDict.canParsePrefix(prefix) || BList.canParsePrefix(prefix))) {
+            return decodeLazy(prefix);
+        }
+        return decodeTree(prefix);
+    }
+
+    private @NotNull BNode<?> decodeLazy(byte prefix) {
+        int begin = position - 1;
+        skip(prefix);
+        DecoderBase source = range(begin, position);
+        return BDict.canParsePrefix(prefix) ? BDict.lazy(source) : BList.lazy(source);
+    }
+
+    /**
+     * Decode the element with the given prefix, using an explicit stack for nested dictionaries and lists.
+     * In lazy mode, only the outermost container is decoded and its children are lazy.
+     */
+    private @NotNull BNode<?> decodeTree(byte prefix) {
+        if (frames == null) {
+            frames = new FrameStack(state);
+        }
+        while (true) {
+            BNode<?> value = null;
+            if (lazy && !frames.isEmpty() && (BDict.canParsePrefix(prefix) || BList.canParsePrefix(prefix))) {
+                value = decodeLazy(prefix);
+            } else if (BDict.canParsePrefix(prefix)) {
+                frames.push(true);
+            } else if (BList.canParsePrefix(prefix)) {
+                frames.push(false);
+            } else {
+                value = decodeValue(prefix);
+            }
+            // add completed values to their container, until the next value starts
+            while (true) {
+                if (value != null) {
+                    if (frames.isEmpty()) {
+                        return value;
+                    }
+                    frames.add(value);
+                }
+                byte read = next();
+                if (read != SUFFIX) {
+                    prefix = startNext(read);
+                    break;
+                }
+                value = frames.pop();
+            }
+        }
+    }
+
+    /**
+     * Start the next entry or element of the current container.
+     *
+     * @return the prefix of the next value
+     */
+    private byte startNext(byte read) {
+        if (!frames.isDict()) {
+            frames.element();
+            return read;
+        }
+        BDict.checkKeyPrefix(read);
+        frames.key(decodeString(read));
+        read = next();
+        BDict.checkValuePrefix(read);
+        return read;
+    }
+
+    private @NotNull BNode<?> decodeValue(byte prefix) {
+        if (BInteger.canParsePrefix(prefix)) {
+            return BInteger.parse(scratch, 0, readInteger());
+        } else if (BString.canParsePrefix(prefix)) {
+            return decodeString(prefix);
+        } else {
+            throw new BencodeException("No parser found for prefix '" + prefix + "'");
+        }
+    }
+
+    /**
+     * Skip the element with the given prefix, applying the same validation as when decoding it.
+     * Nested containers are tracked in {@link #skipFrames}, three values per level: the position of the previous
+     * key of a dictionary ({@link #NO_KEY} before the first one, {@link #LIST} for lists), its length and the
+     * count of entries or elements.
+     */
+    private void skip(byte prefix) {
+        int depth = 0;
+        while (true) {
+            if (BDict.canParsePrefix(prefix) || BList.canParsePrefix(prefix)) {
+                state.enter();
+                if (depth == skipFrames.length) {
+                    skipFrames = Arrays.copyOf(skipFrames, Math.max(24, depth * 2));
+                }
+                skipFrames[depth] = BDict.canParsePrefix(prefix) ? NO_KEY : LIST;
+                skipFrames[depth + 1] = 0;
+                skipFrames[depth + 2] = 0;
+                depth += 3;
+            } else if (BInteger.canParsePrefix(prefix)) {
+                BInteger.validate(scratch, 0, readInteger());
+            } else if (BString.canParsePrefix(prefix)) {
+                skipString(prefix);
+            } else {
+                throw new BencodeException("No parser found for prefix '" + prefix + "'");
+            }
+            // leave completed containers, until the next value starts
+            while (true) {
+                if (depth == 0) {
+                    return;
+                }
+                byte read = next();
+                if (read != SUFFIX) {
+                    prefix = skipNext(read, depth - 3);
+                    break;
+                }
+                state.leave();
+                depth -= 3;
+            }
+        }
+    }
+
+    /**
+     * Start the next entry or element of the container skipped at the given index of {@link #skipFrames}.
+     *
+     * @return the prefix of the next value
+     */
+    private byte skipNext(byte read, int frame) {
+        int previous = skipFrames[frame];
+        if (previous != LIST) {
+            BDict.checkKeyPrefix(read);
+            int length = readLength(read);
+            if (previous != NO_KEY && config.isStrict()) {
+                checkKeyOrder(previous, skipFrames[frame + 1], position, length);
+            }
+            skipFrames[frame] = position;
+            skipFrames[frame + 1] = length;
+            position += length;
+        }
+        state.checkSize(++skipFrames[frame + 2]);
+        if (previous != LIST) {
+            read = next();
+            BDict.checkValuePrefix(read);
+        }
+        return read;
+    }
+
+    /**
+     * Compare two keys within the source without copying them, see {@link BDict#checkKeyOrder(BString, BString)}.
+     */
+    private void checkKeyOrder(int previous, int previousLength, int key, int keyLength) {
+        int length = Math.min(previousLength, keyLength);
+        int diff = previousLength - keyLength;
+        for (int i = 0; i < length; i++) {
+            int bytes = (get(previous + i) & 0xff) - (get(key + i) & 0xff);
+            if (bytes != 0) {
+                diff = bytes;
+                break;
+            }
+        }
+        if (diff >= 0) {
+            BDict.checkKeyOrder(BString.wrap(copy(previous, previousLength)), BString.wrap(copy(key, keyLength)));
+        }
+    }
+
+    private void skipString(byte prefix) {
+        int length = readLength(prefix);
+        position += length;
+    }
+
+    /**
+     * Copy the digits of an integer to the scratch buffer.
+     *
+     * @return the number of digits
+     */
+    private int readInteger() {
+        int begin = position;
+        int end = indexOf(SUFFIX, begin, BInteger.MAX_READ_LEN);
+        if (end < 0) {
+            throw new BencodeException("Invalid data, did not find suffix within " + BInteger.MAX_READ_LEN + " bytes");
+        }
+        position = end + 1;
+
+        int length = end - begin;
+        state.count(length + 2L);
+        for (int i = 0; i < length; i++) {
+            scratch[i] = get(begin + i);
+        }
+        return length;
+    }
+
+    /**
+     * Read the length of a string and check that its content is available.
+     *
+     * @return the length of the string
+     */
+    private int readLength(byte prefix) {
+        int begin = position - 1;
+        int maxLength = state.maxStringLength();
+        long length = prefix - '0';
+
+        byte cur;
+        while ((cur = next()) != SEPARATOR) {
+            length = BString.appendLengthDigit(length, cur, maxLength);
+        }
+        BString.checkLength(prefix, length, maxLength);
+        state.count(position - begin + length);
+
+        int ilength = (int) length;
+        if (ilength > limit - position) {
+            throw new BencodeException("Premature end of stream, missing "
+                + (ilength - (limit - position)) + " bytes.");
+        }
+        return ilength;
+    }
+
+    private @NotNull BString decodeString(byte prefix) {
+        int ilength = readLength(prefix);
+        BString result;
+        if (views && ilength >= MIN_VIEW_LENGTH) {
+            result = BString.view(slice(position, ilength));
+        } else {
+            result = BString.wrap(copy(position, ilength));
+        }
+        position += ilength;
+        return result;
+    }
+
+    private int indexOf(byte needle, int from, int maxLength) {
+        int to = Math.min(limit, from + maxLength);
+        for (int i = from; i < to; i++) {
+            if (get(i) == needle) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private byte next() {
+        if (position == limit) {
+            throw new BencodeException("Premature end of stream, expected more data.");
+        }
+        return get(position++);
+    }
+}
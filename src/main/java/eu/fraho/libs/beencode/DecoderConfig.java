@@ -0,0 +1,192 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable settings for decoding, applied to the whole decoded element including all of its children.
+ * <p>
+ * The limits protect against hostile input, like deeply nested lists or millions of tiny elements.
+ * They are counted while decoding, so the input is rejected as soon as a limit is exceeded.
+ */
+public final class DecoderConfig {
+    /**
+     * Lenient settings without limits besides the maximum length of strings, used by the decode methods without a
+     * config.
+     */
+    public static final DecoderConfig DEFAULT = new DecoderConfig(false, Integer.MAX_VALUE, Long.MAX_VALUE,
+        Long.MAX_VALUE, Integer.MAX_VALUE, BString.DEFAULT_MAX_READ_LEN);
+
+    /**
+     * Settings rejecting dictionaries whose keys are not in ascending order or contain duplicates.
+     *
+     * @see #withStrict(boolean)
+     */
+    public static final DecoderConfig STRICT = DEFAULT.withStrict(true);
+
+    private final boolean strict;
+    private final int maxDepth;
+    private final long maxBytes;
+    private final long maxNodes;
+    private final int maxCollectionSize;
+    private final int maxStringLength;
+
+    private DecoderConfig(boolean strict, int maxDepth, long maxBytes, long maxNodes, int maxCollectionSize,
+                          int maxStringLength) {
+        this.strict = strict;
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.maxNodes = maxNodes;
+        this.maxCollectionSize = maxCollectionSize;
+        this.maxStringLength = maxStringLength;
+    }
+
+    /**
+     * @return are dictionaries with keys out of order or duplicate keys rejected?
+     */
+    @Contract(pure = true)
+    public boolean isStrict() {
+        return strict;
+    }
+
+    /**
+     * @return maximum nesting depth of dictionaries and lists
+     */
+    @Contract(pure = true)
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return maximum count of bytes of the encoded element
+     */
+    @Contract(pure = true)
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return maximum count of nodes, counting each dictionary, list, string and integer including dictionary keys
+     */
+    @Contract(pure = true)
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * @return maximum count of entries of a single dictionary or elements of a single list
+     */
+    @Contract(pure = true)
+    public int getMaxCollectionSize() {
+        return maxCollectionSize;
+    }
+
+    /**
+     * @return maximum length of a single string
+     */
+    @Contract(pure = true)
+    public int getMaxStringLength() {
+        return maxStringLength;
+    }
+
+    /**
+     * Create a copy of this config with the given strictness. In strict mode, each key of a dictionary has to be
+     * greater than the previous key, compared by {@link BString#compareTo(BString)} as required by the bencode
+     * specification. Each key is only compared with the previous one, so decoding fails right at the first key out of
+     * order, before its value is decoded.
+     *
+     * @param strict reject dictionaries with keys out of order or duplicate keys?
+     * @return new config
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public @NotNull DecoderConfig withStrict(boolean strict) {
+        return new DecoderConfig(strict, maxDepth, maxBytes, maxNodes, maxCollectionSize, maxStringLength);
+    }
+
+    /**
+     * Create a copy of this config with the given maximum nesting depth. A dictionary or list on the top level has
+     * the depth 1.
+     *
+     * @param maxDepth maximum nesting depth of dictionaries and lists
+     * @return new config
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public @NotNull DecoderConfig withMaxDepth(int maxDepth) {
+        checkNotNegative("maxDepth", maxDepth);
+        return new DecoderConfig(strict, maxDepth, maxBytes, maxNodes, maxCollectionSize, maxStringLength);
+    }
+
+    /**
+     * Create a copy of this config with the given maximum size of the encoded element.
+     *
+     * @param maxBytes maximum count of bytes of the encoded element
+     * @return new config
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public @NotNull DecoderConfig withMaxBytes(long maxBytes) {
+        checkNotNegative("maxBytes", maxBytes);
+        return new DecoderConfig(strict, maxDepth, maxBytes, maxNodes, maxCollectionSize, maxStringLength);
+    }
+
+    /**
+     * Create a copy of this config with the given maximum count of nodes.
+     *
+     * @param maxNodes maximum count of nodes, counting each dictionary, list, string and integer including
+     *                 dictionary keys
+     * @return new config
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public @NotNull DecoderConfig withMaxNodes(long maxNodes) {
+        checkNotNegative("maxNodes", maxNodes);
+        return new DecoderConfig(strict, maxDepth, maxBytes, maxNodes, maxCollectionSize, maxStringLength);
+    }
+
+    /**
+     * Create a copy of this config with the given maximum size of a single dictionary or list.
+     *
+     * @param maxCollectionSize maximum count of entries of a single dictionary or elements of a single list
+     * @return new config
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public @NotNull DecoderConfig withMaxCollectionSize(int maxCollectionSize) {
+        checkNotNegative("maxCollectionSize", maxCollectionSize);
+        return new DecoderConfig(strict, maxDepth, maxBytes, maxNodes, maxCollectionSize, maxStringLength);
+    }
+
+    /**
+     * Create a copy of this config with the given maximum length of a single string.
+     *
+     * @param maxStringLength maximum length of a single string, defaults to {@link BString#DEFAULT_MAX_READ_LEN}
+     * @return new config
+     * @throws IllegalArgumentException if the value is negative
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public @NotNull DecoderConfig withMaxStringLength(int maxStringLength) {
+        checkNotNegative("maxStringLength", maxStringLength);
+        return new DecoderConfig(strict, maxDepth, maxBytes, maxNodes, maxCollectionSize, maxStringLength);
+    }
+
+    private static void checkNotNegative(@NotNull String name, long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " may not be negative: " + value);
+        }
+    }
+
+    @Override
+    @Contract(pure = true, value = "-> new")
+    public String toString() {
+        return "DecoderConfig{strict=" + strict + ", maxDepth=" + maxDepth + ", maxBytes=" + maxBytes
+            + ", maxNodes=" + maxNodes + ", maxCollectionSize=" + maxCollectionSize
+            + ", maxStringLength=" + maxStringLength + "}";
+    }
+}
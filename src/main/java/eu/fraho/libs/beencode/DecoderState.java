@@ -0,0 +1,88 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Counters of a single decoding operation, checked against the limits of a {@link DecoderConfig}.
+ * Each check is a plain increment and comparison, so it is cheap enough to run for every node.
+ */
+final class DecoderState {
+    final @NotNull DecoderConfig config;
+    private int depth;
+    private long nodes;
+    private long bytes;
+
+    DecoderState(@NotNull DecoderConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Count the start of a dictionary or list, including its prefix and suffix.
+     *
+     * @throws BencodeException if a limit is exceeded
+     */
+    void enter() {
+        if (++depth > config.getMaxDepth()) {
+            throw new BencodeException("Nesting depth exceeds the limit of " + config.getMaxDepth());
+        }
+        count(2);
+    }
+
+    /**
+     * Count the end of a dictionary or list.
+     */
+    void leave() {
+        depth--;
+    }
+
+    /**
+     * Count a node.
+     *
+     * @param length encoded length of the node, without the children of dictionaries and lists
+     * @throws BencodeException if a limit is exceeded
+     */
+    void count(long length) {
+        if (++nodes > config.getMaxNodes()) {
+            throw new BencodeException("Count of nodes exceeds the limit of " + config.getMaxNodes());
+        }
+        bytes += length;
+        if (bytes > config.getMaxBytes()) {
+            throw new BencodeException("Encoded size exceeds the limit of " + config.getMaxBytes() + " bytes");
+        }
+    }
+
+    /**
+     * @param size count of entries or elements of the current dictionary or list
+     * @throws BencodeException if the limit is exceeded
+     */
+    void checkSize(int size) {
+        if (size > config.getMaxCollectionSize()) {
+            throw new BencodeException("Size of dictionary or list exceeds the limit of "
+                + config.getMaxCollectionSize());
+        }
+    }
+
+    /**
+     * Reset all counters, to decode the next element.
+     */
+    void reset() {
+        depth = 0;
+        nodes = 0;
+        bytes = 0;
+    }
+
+    /**
+     * @return maximum length of the next string, which is checked before its content is read
+     */
+    @Contract(pure = true)
+    int maxStringLength() {
+        return (int) Math.min(config.getMaxStringLength(), Math.max(0, config.getMaxBytes() - bytes));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Base of the streams used by {@link NodeFactory} to encode elements.
+ * Provides a scratch area, so decimal numbers like the length of strings can be written without any allocation.
+ */
+abstract class EncoderOutputStream extends OutputStream {
+    private static final int WRITE_CHUNK_SIZE = 8192;
+
+    // enough space for the digits and the sign of any long
+    private final byte @NotNull [] digits = new byte[20];
+
+    /**
+     * Write the given number to the stream. If the stream is an encoder stream, its scratch area is used.
+     *
+     * @param os    stream to write to
+     * @param value number to write
+     * @throws IOException if writing fails
+     */
+    static void writeNumber(@NotNull OutputStream os, long value) throws IOException {
+        if (os instanceof EncoderOutputStream) {
+            ((EncoderOutputStream) os).writeNumber(value);
+        } else {
+            byte[] temp = new byte[20];
+            int start = BInteger.putDigits(value, temp, temp.length);
+            os.write(temp, start, temp.length - start);
+        }
+    }
+
+    /**
+     * Wrap the given stream, so elements written to it can use the scratch area.
+     *
+     * @param os stream to wrap
+     * @return the given stream if it is already an encoder stream, a new forwarding stream otherwise
+     */
+    @Contract(pure = true)
+    static @NotNull EncoderOutputStream wrap(@NotNull OutputStream os) {
+        if (os instanceof EncoderOutputStream) {
+            return (EncoderOutputStream) os;
+        }
+        return new ForwardingOutputStream(os);
+    }
+
+    /**
+     * Write the decimal digits of the given number.
+     *
+     * @param value number to write
+     * @throws IOException if writing fails
+     */
+    void writeNumber(long value) throws IOException {
+        int start = BInteger.putDigits(value, digits, digits.length);
+        write(digits, start, digits.length - start);
+    }
+
+    /**
+     * Write the remaining bytes of the given buffer, without modifying its position.
+     * The buffer is copied in chunks, so the content of large direct buffers is not copied to the heap as a whole.
+     *
+     * @param buffer bytes to write
+     * @throws IOException if writing fails
+     */
+    void write(@NotNull ByteBuffer buffer) throws IOException {
+        ByteBuffer source = buffer.duplicate();
+        byte[] chunk = new byte[Math.min(WRITE_CHUNK_SIZE, source.remaining())];
+        while (source.hasRemaining()) {
+            int length = Math.min(chunk.length, source.remaining());
+            source.get(chunk, 0, length);
+            write(chunk, 0, length);
+        }
+    }
+
+    @Override
+    public abstract void write(byte @NotNull [] b, int off, int len) throws IOException;
+
+    private static final class ForwardingOutputStream extends EncoderOutputStream {
+        private final @NotNull OutputStream os;
+
+        private ForwardingOutputStream(@NotNull OutputStream os) {
+            this.os = os;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            os.write(b);
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) throws IOException {
+            os.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            os.flush();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Explicit stack of the dictionaries and lists being decoded. Nested elements are decoded in a loop instead of by
+ * recursion, so the nesting depth is not limited by the size of the thread stack.
+ * The frames are reused for all containers decoded by the same decoder. Each frame collects the entries of its
+ * container in arrays of its own, so the decoded container is built with exactly the required size.
+ */
+final class FrameStack {
+    // larger arrays of a frame are released after its container is complete, instead of being reused
+    private static final int MAX_RETAINED_CAPACITY = 1024;
+
+    private final @NotNull DecoderState state;
+    private @Nullable Frame @NotNull [] frames = new Frame[8];
+    private int depth;
+
+    FrameStack(@NotNull DecoderState state) {
+        this.state = state;
+    }
+
+    /**
+     * @return is no dictionary or list being decoded?
+     */
+    boolean isEmpty() {
+        return depth == 0;
+    }
+
+    /**
+     * Start a new dictionary or list.
+     *
+     * @param dict start a dictionary, otherwise a list
+     * @throws BencodeException if a limit is exceeded
+     */
+    void push(boolean dict) {
+        state.enter();
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        Frame frame = frames[depth];
+        if (frame == null) {
+            frames[depth] = frame = new Frame();
+        }
+        frame.start(dict);
+        depth++;
+    }
+
+    /**
+     * @return is the current container a dictionary?
+     */
+    boolean isDict() {
+        return top().dict;
+    }
+
+    /**
+     * Start the next entry of the current dictionary.
+     *
+     * @param key key of the entry
+     * @throws BencodeException if the key is out of order in strict mode or a limit is exceeded
+     */
+    void key(@NotNull BString key) {
+        Frame frame = top();
+        if (frame.key != null && state.config.isStrict()) {
+            BDict.checkKeyOrder(frame.key, key);
+        }
+        frame.key = key;
+        state.checkSize(++frame.size);
+    }
+
+    /**
+     * Start the next element of the current list.
+     *
+     * @throws BencodeException if a limit is exceeded
+     */
+    void element() {
+        Frame frame = top();
+        state.checkSize(++frame.size);
+    }
+
+    /**
+     * Add a value to the current container, using the key of the current entry for dictionaries.
+     *
+     * @param value decoded value
+     */
+    void add(@NotNull BNode<?> value) {
+        Frame frame = top();
+        int count = frame.count;
+        if (frame.dict) {
+            // the frame may have decoded only lists before, so the keys grow on their own
+            if (count == frame.keys.length) {
+                frame.keys = Arrays.copyOf(frame.keys, grow(count));
+            }
+            frame.keys[count] = frame.key;
+        }
+        if (count == frame.values.length) {
+            frame.values = Arrays.copyOf(frame.values, grow(count));
+        }
+        frame.values[count] = value;
+        frame.count = count + 1;
+    }
+
+    /**
+     * Complete the current container.
+     *
+     * @return the decoded dictionary or list
+     */
+    @NotNull BNode<?> pop() {
+        state.leave();
+        Frame frame = frames[--depth];
+        BNode<?> result = frame.dict ? frame.buildDict() : frame.buildList();
+        frame.clear();
+        return result;
+    }
+
+    /**
+     * Discard all containers, to decode the next element after a failure.
+     */
+    void clear() {
+        while (depth > 0) {
+            //noinspection ConstantConditions
+            frames[--depth].clear();
+        }
+    }
+
+    private @NotNull Frame top() {
+        //noinspection ConstantConditions
+        return frames[depth - 1];
+    }
+
+    private static int grow(int capacity) {
+        return (int) Math.min(Math.max(8, capacity * 2L), NodeFactory.MAX_ARRAY_LENGTH);
+    }
+
+    private static final class Frame {
+        private static final BString[] NO_KEYS = new BString[0];
+        private static final BNode<?>[] NO_VALUES = new BNode<?>[0];
+
+        private boolean dict;
+        // keys (dictionaries only) and values added so far
+        private @Nullable BString @NotNull [] keys = NO_KEYS;
+        private @Nullable BNode<?> @NotNull [] values = NO_VALUES;
+        private int count;
+        // key of the current entry of a dictionary
+        private @Nullable BString key;
+        // count of entries or elements started, checked against the limit
+        private int size;
+
+        private void start(boolean dict) {
+            this.dict = dict;
+        }
+
+        private @NotNull BDict buildDict() {
+            // presized exactly, so the builder hands its arrays over without trimming them
+            BDict.Builder builder = BDict.builder(count);
+            for (int i = 0; i < count; i++) {
+                //noinspection ConstantConditions
+                builder.put(keys[i], values[i]);
+            }
+            return builder.build();
+        }
+
+        private @NotNull BList buildList() {
+            BList.Builder builder = BList.builder(count);
+            for (int i = 0; i < count; i++) {
+                //noinspection ConstantConditions
+                builder.add(values[i]);
+            }
+            return builder.build();
+        }
+
+        // release the references, so decoded nodes are not retained by the decoder
+        private void clear() {
+            if (values.length > MAX_RETAINED_CAPACITY || keys.length > MAX_RETAINED_CAPACITY) {
+                keys = NO_KEYS;
+                values = NO_VALUES;
+            } else {
+                Arrays.fill(keys, 0, Math.min(count, keys.length), null);
+                Arrays.fill(values, 0, count, null);
+            }
+            count = 0;
+            key = null;
+            size = 0;
+        }
+    }
+}
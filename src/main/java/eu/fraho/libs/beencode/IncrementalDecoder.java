@@ -0,0 +1,307 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Decoder accepting the encoded data in chunks of any size, for non-blocking channels where a message arrives in
+ * fragments. The partial state is kept between calls of {@link #feed(ByteBuffer)}, so no thread is blocked while
+ * waiting for the rest of the data.
+ * <p>
+ * Each call consumes the given bytes up to the end of the current element. Bytes following a complete element stay
+ * in the buffer, so back-to-back messages are decoded one after another.
+ * The same validation rules and {@link DecoderConfig limits} as in {@link NodeFactory} apply.
+ * After a {@link BencodeException}, the decoder has to be {@link #reset()} before it can be used again.
+ * Instances of this class are not threadsafe.
+ *
+ * <pre>{@code
+ * IncrementalDecoder decoder = new IncrementalDecoder();
+ * // whenever the channel is readable
+ * channel.read(buffer);
+ * buffer.flip();
+ * while (decoder.feed(buffer) == IncrementalDecoder.Status.COMPLETE) {
+ *     handle(decoder.takeResult());
+ * }
+ * buffer.compact();
+ * }</pre>
+ */
+public final class IncrementalDecoder {
+    private static final byte SEPARATOR = ':';
+    private static final byte SUFFIX = 'e';
+    // initial capacity for the content of a string, which grows with the received data up to the announced length
+    private static final int MIN_CONTENT_CAPACITY = 8192;
+
+    // what the next byte is expected to be
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_NEXT = 1;
+    private static final int EXPECT_DICT_VALUE = 2;
+    private static final int EXPECT_INTEGER = 3;
+    private static final int EXPECT_STRING_LENGTH = 4;
+    private static final int EXPECT_STRING_CONTENT = 5;
+
+    private final @NotNull DecoderState state;
+    private final @NotNull FrameStack frames;
+    private final byte @NotNull [] scratch = new byte[BInteger.MAX_READ_LEN];
+    private int expected = EXPECT_VALUE;
+    private boolean started;
+    private boolean failed;
+    private @Nullable BNode<?> result;
+
+    private int integerLength;
+
+    private byte stringPrefix;
+    private long stringLength;
+    private int stringHeaderLength;
+    private int maxStringLength;
+    private boolean stringIsKey;
+    private byte @Nullable [] content;
+    private int contentLength;
+
+    /**
+     * Create a new decoder using {@link DecoderConfig#DEFAULT}.
+     */
+    public IncrementalDecoder() {
+        this(DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Create a new decoder.
+     *
+     * @param config settings for decoding, applied to each decoded element
+     */
+    public IncrementalDecoder(@NotNull DecoderConfig config) {
+        Objects.requireNonNull(config, "config may not be null");
+        this.state = new DecoderState(config);
+        this.frames = new FrameStack(state);
+    }
+
+    /**
+     * Consume the given bytes up to the end of the current element.
+     * If an element is already complete and not taken yet, nothing is consumed.
+     *
+     * @param input the next bytes of the encoded data, its position is advanced by the consumed bytes
+     * @return {@link Status#COMPLETE} if an element is complete and can be taken with {@link #takeResult()},
+     * {@link Status#NEEDS_MORE_INPUT} if all bytes were consumed and the element is still incomplete
+     * @throws BencodeException      if the data is invalid or a limit is exceeded
+     * @throws IllegalStateException if a previous call failed and the decoder was not reset
+     */
+    public @NotNull Status feed(@NotNull ByteBuffer input) {
+        Objects.requireNonNull(input, "input may not be null");
+        if (failed) {
+            throw new IllegalStateException("Decoding failed, the decoder has to be reset");
+        }
+        try {
+            while (result == null && input.hasRemaining()) {
+                if (expected == EXPECT_STRING_CONTENT) {
+                    readContent(input);
+                } else {
+                    started = true;
+                    accept(input.get());
+                }
+            }
+        } catch (RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+        return result != null ? Status.COMPLETE : Status.NEEDS_MORE_INPUT;
+    }
+
+    /**
+     * Take the completed element, so the next call of {@link #feed(ByteBuffer)} starts decoding the next element.
+     *
+     * @return the completed element
+     * @throws IllegalStateException if no element is complete
+     */
+    @Contract(value = "-> new")
+    public @NotNull BNode<?> takeResult() {
+        BNode<?> completed = result;
+        if (completed == null) {
+            throw new IllegalStateException("No element is complete");
+        }
+        result = null;
+        started = false;
+        state.reset();
+        return completed;
+    }
+
+    /**
+     * @return has a part of an element been consumed, which is not complete yet?
+     */
+    @Contract(pure = true)
+    public boolean isInProgress() {
+        return started && result == null;
+    }
+
+    /**
+     * Discard the partial state and any completed element, to start decoding a new element.
+     */
+    public void reset() {
+        frames.clear();
+        state.reset();
+        expected = EXPECT_VALUE;
+        started = false;
+        failed = false;
+        result = null;
+        content = null;
+    }
+
+    private void accept(byte read) {
+        switch (expected) {
+            case EXPECT_VALUE:
+                startValue(read);
+                break;
+            case EXPECT_NEXT:
+                startNext(read);
+                break;
+            case EXPECT_DICT_VALUE:
+                BDict.checkValuePrefix(read);
+                startValue(read);
+                break;
+            case EXPECT_INTEGER:
+                readInteger(read);
+                break;
+            case EXPECT_STRING_LENGTH:
+                readLength(read);
+                break;
+            default:
+                throw new IllegalStateException("Unexpected state " + expected);
+        }
+    }
+
+    private void startValue(byte prefix) {
+        if (BDict.canParsePrefix(prefix)) {
+            frames.push(true);
+            expected = EXPECT_NEXT;
+        } else if (BList.canParsePrefix(prefix)) {
+            frames.push(false);
+            expected = EXPECT_NEXT;
+        } else if (BInteger.canParsePrefix(prefix)) {
+            integerLength = 0;
+            expected = EXPECT_INTEGER;
+        } else if (BString.canParsePrefix(prefix)) {
+            startString(prefix, false);
+        } else {
+            throw new BencodeException("No parser found for prefix '" + prefix + "'");
+        }
+    }
+
+    /**
+     * Complete the current container or start its next entry or element.
+     */
+    private void startNext(byte read) {
+        if (read == SUFFIX) {
+            complete(frames.pop());
+        } else if (frames.isDict()) {
+            BDict.checkKeyPrefix(read);
+            startString(read, true);
+        } else {
+            frames.element();
+            startValue(read);
+        }
+    }
+
+    private void readInteger(byte read) {
+        if (read == SUFFIX) {
+            BInteger value = BInteger.parse(scratch, 0, integerLength);
+            state.count(value.encodedLength());
+            complete(value);
+        } else if (integerLength == BInteger.MAX_READ_LEN - 1) {
+            throw new BencodeException("Invalid data, did not find suffix within " + BInteger.MAX_READ_LEN + " bytes");
+        } else {
+            scratch[integerLength++] = read;
+        }
+    }
+
+    private void startString(byte prefix, boolean key) {
+        stringPrefix = prefix;
+        stringLength = prefix - '0';
+        stringHeaderLength = 1;
+        stringIsKey = key;
+        maxStringLength = state.maxStringLength();
+        expected = EXPECT_STRING_LENGTH;
+    }
+
+    private void readLength(byte read) {
+        stringHeaderLength++;
+        if (read != SEPARATOR) {
+            stringLength = BString.appendLengthDigit(stringLength, read, maxStringLength);
+            return;
+        }
+        BString.checkLength(stringPrefix, stringLength, maxStringLength);
+        state.count(stringHeaderLength + stringLength);
+        // allocated when the content arrives, so an announced length alone does not claim any memory
+        content = null;
+        contentLength = 0;
+        if (stringLength == 0) {
+            content = new byte[0];
+            completeString();
+        } else {
+            expected = EXPECT_STRING_CONTENT;
+        }
+    }
+
+    private void readContent(@NotNull ByteBuffer input) {
+        int length = (int) Math.min(input.remaining(), stringLength - contentLength);
+        byte[] target = content;
+        int required = contentLength + length;
+        if (target == null || target.length < required) {
+            // at most double the received data, the last step ends exactly at the announced length
+            long capacity = Math.max(required, target == null ? MIN_CONTENT_CAPACITY : target.length * 2L);
+            byte[] grown = new byte[(int) Math.min(stringLength, capacity)];
+            if (target != null) {
+                System.arraycopy(target, 0, grown, 0, contentLength);
+            }
+            content = target = grown;
+        }
+        input.get(target, contentLength, length);
+        contentLength += length;
+        if (contentLength == stringLength) {
+            completeString();
+        }
+    }
+
+    private void completeString() {
+        BString value = BString.wrap(Objects.requireNonNull(content, "content may not be null"));
+        content = null;
+        if (stringIsKey) {
+            frames.key(value);
+            expected = EXPECT_DICT_VALUE;
+        } else {
+            complete(value);
+        }
+    }
+
+    private void complete(@NotNull BNode<?> value) {
+        if (frames.isEmpty()) {
+            result = value;
+            expected = EXPECT_VALUE;
+        } else {
+            frames.add(value);
+            expected = EXPECT_NEXT;
+        }
+    }
+
+    /**
+     * Result of {@link #feed(ByteBuffer)}.
+     */
+    public enum Status {
+        /**
+         * All given bytes were consumed, the element is not complete yet.
+         */
+        NEEDS_MORE_INPUT,
+        /**
+         * An element is complete and can be taken with {@link #takeResult()}.
+         */
+        COMPLETE
+    }
+}
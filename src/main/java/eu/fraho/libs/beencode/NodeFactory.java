@@ -10,27 +10,45 @@ import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public final class NodeFactory {
+    // some virtual machines reserve header words in an array
+    static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
     private NodeFactory() {
         // this util class should not be instantiated
     }
 
     @Contract(value = "_, _ -> new")
     public static @NotNull BNode<?> decode(@NotNull InputStream stream, byte prefix) throws IOException {
-        if (BDict.canParsePrefix(prefix)) {
-            return BDict.of(stream, prefix);
-        } else if (BInteger.canParsePrefix(prefix)) {
-            return BInteger.of(stream, prefix);
-        } else if (BString.canParsePrefix(prefix)) {
-            return BString.of(stream, prefix);
-        } else if (BList.canParsePrefix(prefix)) {
-            return BList.of(stream, prefix);
-        } else {
-            throw new BencodeException("No parser found for prefix '" + prefix + "'");
-        }
+        return decode(stream, prefix, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Decode the element with the given prefix from the stream.
+     *
+     * @param stream stream to read from
+     * @param prefix first byte of the element, already read from the stream
+     * @param config settings for decoding
+     * @return the decoded element
+     * @throws IOException      if reading fails
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull BNode<?> decode(@NotNull InputStream stream, byte prefix, @NotNull DecoderConfig config) throws IOException {
+        Objects.requireNonNull(config, "config may not be null");
+        return new StreamDecoder(stream, config).decode(prefix);
     }
 
     @Contract(value = "_ -> new")
@@ -39,41 +57,281 @@ public final class NodeFactory {
         return decode(stream, (byte) stream.read());
     }
 
+    /**
+     * Decode the next element from the stream.
+     *
+     * @param stream stream to read from
+     * @param config settings for decoding
+     * @return the decoded element
+     * @throws IOException      if reading fails
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(value = "_, _ -> new")
+    public static @NotNull BNode<?> decode(@NotNull InputStream stream, @NotNull DecoderConfig config) throws IOException {
+        Objects.requireNonNull(stream, "stream may not be null");
+        return decode(stream, (byte) stream.read(), config);
+    }
+
     public static <T extends BNode<?>> Optional<T> decode(@NotNull InputStream stream, @NotNull Class<T> expected) throws IOException {
-        BNode<?> result = decode(stream, (byte) stream.read());
-        if (expected.isAssignableFrom(result.getClass())) {
-            return Optional.of(expected.cast(result));
-        } else {
-            throw new BencodeException("Parsed the data as " + result.getClass().getSimpleName() + ", but expected " + expected.getSimpleName());
-        }
+        return checkType(decode(stream, (byte) stream.read()), expected);
     }
 
     @Contract(pure = true, value = "_ -> new")
     public static @NotNull BNode<?> decode(byte @NotNull [] data) {
         Objects.requireNonNull(data, "data may not be null");
-        try (InputStream is = new ByteArrayInputStream(data)) {
-            return decode(is);
-        } catch (IOException e) {
-            // cannot happen as we work on a virtual bytestream and it never throws an IOE
-            throw new BencodeException(e);
+        return decode(data, 0, data.length);
+    }
+
+    /**
+     * Decode the element at the given slice of the array.
+     * The data is read directly from the array, trailing data after the first element is ignored.
+     *
+     * @param data   array containing the encoded element
+     * @param offset index of the first byte of the element
+     * @param length number of bytes available for the element
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(pure = true, value = "_, _, _ -> new")
+    public static @NotNull BNode<?> decode(byte @NotNull [] data, int offset, int length) {
+        return decode(data, offset, length, DecoderConfig.DEFAULT);
+    }
+
+    @Contract(pure = true, value = "_, _ -> new")
+    public static @NotNull BNode<?> decode(byte @NotNull [] data, @NotNull DecoderConfig config) {
+        Objects.requireNonNull(data, "data may not be null");
+        return decode(data, 0, data.length, config);
+    }
+
+    /**
+     * Decode the element at the given slice of the array, see {@link #decode(byte[], int, int)}.
+     *
+     * @param data   array containing the encoded element
+     * @param offset index of the first byte of the element
+     * @param length number of bytes available for the element
+     * @param config settings for decoding
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(pure = true, value = "_, _, _, _ -> new")
+    public static @NotNull BNode<?> decode(byte @NotNull [] data, int offset, int length, @NotNull DecoderConfig config) {
+        Objects.requireNonNull(data, "data may not be null");
+        Objects.requireNonNull(config, "config may not be null");
+        return new ByteArrayDecoder(data, offset, length, false, false, config).decode();
+    }
+
+    /**
+     * Decode a batch of independent elements in parallel, using the {@link ForkJoinPool#commonPool() common pool}.
+     *
+     * @param data encoded elements, each array containing a single element
+     * @return the decoded elements or their exceptions by index
+     * @see #decodeAll(List, DecoderConfig, Executor)
+     */
+    @Contract(value = "_ -> new")
+    public static @NotNull BatchResult decodeAll(@NotNull List<byte[]> data) {
+        return decodeAll(data, DecoderConfig.DEFAULT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Decode a batch of independent elements in parallel.
+     *
+     * @param data     encoded elements, each array containing a single element
+     * @param executor executor running the tasks
+     * @return the decoded elements or their exceptions by index
+     * @see #decodeAll(List, DecoderConfig, Executor)
+     */
+    @Contract(value = "_, _ -> new")
+    public static @NotNull BatchResult decodeAll(@NotNull List<byte[]> data, @NotNull Executor executor) {
+        return decodeAll(data, DecoderConfig.DEFAULT, executor);
+    }
+
+    /**
+     * Decode a batch of independent elements in parallel. The batch is split into chunks, which are decoded by tasks
+     * submitted to the executor and by the calling thread. This method returns after all elements are decoded.
+     * An invalid element does not abort the batch, its {@link BencodeException} is reported at its index instead.
+     *
+     * @param data     encoded elements, each array containing a single element
+     * @param config   settings for decoding, applied to each element
+     * @param executor executor running the tasks
+     * @return the decoded elements or their exceptions by index
+     * @throws NullPointerException if an element of the batch is null
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull BatchResult decodeAll(@NotNull List<byte[]> data, @NotNull DecoderConfig config, @NotNull Executor executor) {
+        Objects.requireNonNull(data, "data may not be null");
+        Objects.requireNonNull(config, "config may not be null");
+        Objects.requireNonNull(executor, "executor may not be null");
+        // an array for fast random access by the tasks, regardless of the type of the list
+        byte[][] elements = data.toArray(new byte[0][]);
+        for (byte[] element : elements) {
+            Objects.requireNonNull(element, "data may not contain null");
         }
+        return BatchDecoder.decode(elements, config, executor);
+    }
+
+    /**
+     * Decode the element at the given slice of the array, sharing the array with the result.
+     * Large strings are not copied but stay views into the given array until their value is accessed.
+     * Thus, the array may not be modified afterwards, otherwise the returned element would change.
+     *
+     * @param data   array containing the encoded element
+     * @param offset index of the first byte of the element
+     * @param length number of bytes available for the element
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid
+     * @see #decode(byte[], int, int)
+     */
+    @Contract(pure = true, value = "_, _, _ -> new")
+    public static @NotNull BNode<?> decodeShared(byte @NotNull [] data, int offset, int length) {
+        Objects.requireNonNull(data, "data may not be null");
+        return new ByteArrayDecoder(data, offset, length, true, false, DecoderConfig.DEFAULT).decode();
+    }
+
+    @Contract(pure = true, value = "_ -> new")
+    public static @NotNull BNode<?> decodeLazy(byte @NotNull [] data) {
+        Objects.requireNonNull(data, "data may not be null");
+        return decodeLazy(data, 0, data.length);
+    }
+
+    /**
+     * Decode the element at the given slice of the array lazily. Dictionaries and lists are only scanned and
+     * validated, their children are decoded on first access. Writing such a node copies the original bytes.
+     * Like with {@link #decodeShared(byte[], int, int)}, the array may not be modified afterwards.
+     *
+     * @param data   array containing the encoded element
+     * @param offset index of the first byte of the element
+     * @param length number of bytes available for the element
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(pure = true, value = "_, _, _ -> new")
+    public static @NotNull BNode<?> decodeLazy(byte @NotNull [] data, int offset, int length) {
+        Objects.requireNonNull(data, "data may not be null");
+        return new ByteArrayDecoder(data, offset, length, true, true, DecoderConfig.DEFAULT).decode();
     }
 
     @Contract(pure = true, value = "_, _ -> new")
     public static <T extends BNode<?>> Optional<T> decode(byte @NotNull [] data, @NotNull Class<T> expected) {
-        try (InputStream stream = new ByteArrayInputStream(data)) {
-            return decode(stream, expected);
-        } catch (IOException e) {
-            // cannot happen as we work on a virtual bytestream and it never throws an IOE
-            throw new BencodeException(e);
+        return checkType(decode(data), expected);
+    }
+
+    /**
+     * Decode the element at the current position of the buffer. The data is read in place, heap and direct buffers
+     * are supported. On success, the position of the buffer is advanced to the first byte after the element.
+     * If the data is invalid or incomplete, the position is not modified.
+     *
+     * @param buffer buffer containing the encoded element
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid or incomplete
+     */
+    @Contract(value = "_ -> new")
+    public static @NotNull BNode<?> decode(@NotNull ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer may not be null");
+        return decode(buffer, false, DecoderConfig.DEFAULT);
+    }
+
+    /**
+     * Decode the element at the current position of the buffer, see {@link #decode(ByteBuffer)}.
+     *
+     * @param buffer buffer containing the encoded element
+     * @param config settings for decoding
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid or incomplete
+     */
+    @Contract(value = "_, _ -> new")
+    public static @NotNull BNode<?> decode(@NotNull ByteBuffer buffer, @NotNull DecoderConfig config) {
+        Objects.requireNonNull(buffer, "buffer may not be null");
+        Objects.requireNonNull(config, "config may not be null");
+        return decode(buffer, false, config);
+    }
+
+    /**
+     * Decode the element at the current position of the buffer lazily, see {@link #decodeLazy(byte[], int, int)}.
+     * The content of the buffer may not be modified afterwards.
+     * On success, the position of the buffer is advanced to the first byte after the element.
+     *
+     * @param buffer buffer containing the encoded element
+     * @return the decoded element
+     * @throws BencodeException if the data is invalid or incomplete
+     */
+    @Contract(value = "_ -> new")
+    public static @NotNull BNode<?> decodeLazy(@NotNull ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer may not be null");
+        return decode(buffer, true, DecoderConfig.DEFAULT);
+    }
+
+    private static @NotNull BNode<?> decode(@NotNull ByteBuffer buffer, boolean lazy, @NotNull DecoderConfig config) {
+        DecoderBase decoder;
+        if (buffer.hasArray()) {
+            decoder = new ByteArrayDecoder(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), lazy, lazy, config);
+        } else {
+            decoder = new ByteBufferDecoder(buffer, lazy, lazy, config);
+        }
+        BNode<?> result = decoder.decode();
+        buffer.position(buffer.position() + decoder.consumed());
+        return result;
+    }
+
+    @Contract(value = "_, _ -> new")
+    public static <T extends BNode<?>> Optional<T> decode(@NotNull ByteBuffer buffer, @NotNull Class<T> expected) {
+        return checkType(decode(buffer), expected);
+    }
+
+    /**
+     * Decode the element at the beginning of the given file.
+     *
+     * @param path file to read
+     * @return the decoded element
+     * @throws IOException      if the file cannot be read
+     * @throws BencodeException if the data is invalid
+     * @see #decode(FileChannel)
+     */
+    @Contract(value = "_ -> new")
+    public static @NotNull BNode<?> decode(@NotNull Path path) throws IOException {
+        Objects.requireNonNull(path, "path may not be null");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return decode(channel);
         }
     }
 
+    /**
+     * Decode the element at the current position of the given channel. The file is mapped into memory and read in
+     * place, large strings stay views into the mapping until their value is accessed. Thus, the file may not be
+     * modified while the returned element is in use. At most 2 GiB are mapped.
+     * On success, the position of the channel is advanced to the first byte after the element.
+     *
+     * @param channel channel to read
+     * @return the decoded element
+     * @throws IOException      if the file cannot be mapped
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(value = "_ -> new")
+    public static @NotNull BNode<?> decode(@NotNull FileChannel channel) throws IOException {
+        Objects.requireNonNull(channel, "channel may not be null");
+        long position = channel.position();
+        long size = Math.min(Integer.MAX_VALUE, Math.max(0, channel.size() - position));
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        ByteBufferDecoder decoder = new ByteBufferDecoder(buffer, true, false, DecoderConfig.DEFAULT);
+        BNode<?> result = decoder.decode();
+        channel.position(position + decoder.consumed());
+        return result;
+    }
+
     @Contract(pure = true, value = "_ -> new")
     public static byte @NotNull [] encode(@NotNull BNode<?> node) {
-        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            node.write(bos);
-            return bos.toByteArray();
+        byte[] cached = node instanceof BNodeBase ? ((BNodeBase<?>) node).getEncoded() : null;
+        if (cached != null) {
+            return cached.clone();
+        }
+        long length = node.encodedLength();
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new BencodeException("Encoded element is too large for an array: " + length + " bytes");
+        }
+        try {
+            // exactly the required size, so the array is filled directly and never resized or copied
+            ArrayOutputStream os = new ArrayOutputStream((int) length);
+            node.write(os);
+            return os.toByteArray();
         } catch (IOException e) {
             // should never happen as we work on a virtual bytestream
             throw new BencodeException(e);
@@ -81,6 +339,115 @@ public final class NodeFactory {
     }
 
     public static void encode(@NotNull BNode<?> node, @NotNull OutputStream os) throws IOException {
-        node.write(os);
+        node.write(EncoderOutputStream.wrap(os));
+    }
+
+    /**
+     * Encode the given element into a sequence of buffers, ready for a gathering write like
+     * {@link java.nio.channels.GatheringByteChannel#write(ByteBuffer[])}.
+     * <p>
+     * Prefixes, lengths and suffixes are packed into shared scratch arrays. The content of large strings is not
+     * copied, its segment is a read-only buffer sharing the content of the string. Elements with large strings, like
+     * the {@code pieces} of a torrent, are written this way without copying their content into an intermediate array.
+     *
+     * @param node element to encode
+     * @return the encoded element, each buffer positioned at its first byte
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static ByteBuffer @NotNull [] encodeSegments(@NotNull BNode<?> node) {
+        try {
+            SegmentOutputStream os = new SegmentOutputStream(node.encodedLength());
+            node.write(os);
+            return os.toSegments();
+        } catch (IOException e) {
+            // should never happen as we work on virtual buffers
+            throw new BencodeException(e);
+        }
+    }
+
+    /**
+     * Encode the given element canonically: the keys of all dictionaries are written in ascending order of their raw
+     * bytes, as required by the bencode specification. The result is the same for equal elements, regardless of the
+     * order in which the entries of a dictionary were added, so it can be used to compute hashes or signatures.
+     * Dictionaries are only sorted if their keys are out of order.
+     *
+     * @param node element to encode
+     * @return the canonical encoded form
+     * @see BString#compareTo(BString)
+     */
+    @Contract(pure = true, value = "_ -> new")
+    public static byte @NotNull [] encodeCanonical(@NotNull BNode<?> node) {
+        long length = node.encodedLength();
+        if (length > MAX_ARRAY_LENGTH) {
+            throw new BencodeException("Encoded element is too large for an array: " + length + " bytes");
+        }
+        try {
+            ArrayOutputStream os = new ArrayOutputStream((int) length);
+            writeCanonical(node, os);
+            return os.toByteArray();
+        } catch (IOException e) {
+            // should never happen as we work on a virtual bytestream
+            throw new BencodeException(e);
+        }
+    }
+
+    /**
+     * Encode the given element canonically to the stream.
+     *
+     * @param node element to encode
+     * @param os   stream to write to
+     * @throws IOException if writing fails
+     * @see #encodeCanonical(BNode)
+     */
+    public static void encodeCanonical(@NotNull BNode<?> node, @NotNull OutputStream os) throws IOException {
+        writeCanonical(node, EncoderOutputStream.wrap(os));
+    }
+
+    /**
+     * Write the given element with the keys of all dictionaries in ascending order.
+     *
+     * @param node element to write
+     * @param os   stream to write to
+     * @throws IOException if writing fails
+     */
+    static void writeCanonical(@NotNull BNode<?> node, @NotNull OutputStream os) throws IOException {
+        if (node instanceof BDict) {
+            ((BDict) node).writeCanonical(os);
+        } else if (node instanceof BList) {
+            ((BList) node).writeCanonical(os);
+        } else {
+            node.write(os);
+        }
+    }
+
+    /**
+     * Write the given element into the buffer, starting at its current position.
+     * On success, the position of the buffer is advanced to the first byte after the element.
+     * If the element does not fit into the remaining space, the position is reset to the initial value,
+     * so the caller may drain the buffer and try again.
+     *
+     * @param node   element to write
+     * @param buffer buffer to write into
+     * @throws BufferOverflowException if the remaining space of the buffer is too small
+     */
+    public static void encode(@NotNull BNode<?> node, @NotNull ByteBuffer buffer) {
+        int position = buffer.position();
+        try {
+            node.write(new ByteBufferOutputStream(buffer));
+        } catch (BufferOverflowException e) {
+            buffer.position(position);
+            throw e;
+        } catch (IOException e) {
+            // should never happen as we work on a buffer
+            throw new BencodeException(e);
+        }
+    }
+
+    private static <T extends BNode<?>> Optional<T> checkType(@NotNull BNode<?> result, @NotNull Class<T> expected) {
+        if (expected.isAssignableFrom(result.getClass())) {
+            return Optional.of(expected.cast(result));
+        } else {
+            throw new BencodeException("Parsed the data as " + result.getClass().getSimpleName() + ", but expected " + expected.getSimpleName());
+        }
     }
 }
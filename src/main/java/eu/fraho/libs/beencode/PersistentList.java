@@ -0,0 +1,353 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+/**
+ * Immutable list backed by a balanced tree (AVL) with the size of each subtree.
+ * Adding, replacing and removing an element creates a new list sharing all but O(log n) nodes with this list,
+ * so modified copies of large lists are cheap. Accessing an element by index takes O(log n).
+ *
+ * @param <E> type of the elements
+ */
+final class PersistentList<E> extends AbstractList<E> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final PersistentList<?> EMPTY = new PersistentList<>(null);
+
+    private final transient @Nullable Node<E> root;
+
+    private PersistentList(@Nullable Node<E> root) {
+        this.root = root;
+    }
+
+    /**
+     * @param <E> type of the elements
+     * @return the empty list
+     */
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    static <E> @NotNull PersistentList<E> empty() {
+        return (PersistentList<E>) EMPTY;
+    }
+
+    /**
+     * Create a list containing the given elements, in O(n).
+     *
+     * @param elements elements of the new list
+     * @param <E>      type of the elements
+     * @return the given collection if it is a persistent list already, a new list otherwise
+     */
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    static <E> @NotNull PersistentList<E> of(@NotNull Collection<? extends E> elements) {
+        if (elements instanceof PersistentList) {
+            return (PersistentList<E>) elements;
+        }
+        Object[] array = elements.toArray();
+        return new PersistentList<>(build((E[]) array, 0, array.length));
+    }
+
+    @Override
+    @Contract(pure = true)
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    @Contract(pure = true)
+    public E get(int index) {
+        checkIndex(index, size());
+        Node<E> node = root;
+        while (true) {
+            //noinspection ConstantConditions
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index > leftSize) {
+                index -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * Search a sorted list, see {@link java.util.Arrays#binarySearch(Object[], Object)}.
+     *
+     * @param comparison compares the searched element with the given element
+     * @return the index of the element, or {@code -(insertion point) - 1} if not found
+     */
+    @Contract(pure = true)
+    int search(@NotNull ToIntFunction<? super E> comparison) {
+        Node<E> node = root;
+        int offset = 0;
+        while (node != null) {
+            int diff = comparison.applyAsInt(node.value);
+            if (diff < 0) {
+                node = node.left;
+            } else if (diff > 0) {
+                offset += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return offset + size(node.left);
+            }
+        }
+        return -offset - 1;
+    }
+
+    /**
+     * @param index   index of the element to replace
+     * @param element new element
+     * @return a new list with the element at the given index replaced
+     */
+    @Contract(pure = true, value = "_, _ -> new")
+    @NotNull PersistentList<E> with(int index, E element) {
+        checkIndex(index, size());
+        return new PersistentList<>(set(root, index, element));
+    }
+
+    /**
+     * @param index   index of the new element, between 0 and {@link #size()}
+     * @param element new element
+     * @return a new list with the element inserted at the given index
+     */
+    @Contract(pure = true, value = "_, _ -> new")
+    @NotNull PersistentList<E> plus(int index, E element) {
+        checkIndex(index, size() + 1);
+        return new PersistentList<>(insert(root, index, element));
+    }
+
+    /**
+     * @param element new element
+     * @return a new list with the element appended
+     */
+    @Contract(pure = true, value = "_ -> new")
+    @NotNull PersistentList<E> plus(E element) {
+        return new PersistentList<>(insert(root, size(), element));
+    }
+
+    /**
+     * @param other list to append
+     * @return a new list with all elements of the given list appended
+     */
+    @Contract(pure = true)
+    @NotNull PersistentList<E> plus(@NotNull PersistentList<E> other) {
+        if (other.root == null) {
+            return this;
+        } else if (root == null) {
+            return other;
+        }
+        E first = other.get(0);
+        return new PersistentList<>(join(root, first, remove(other.root, 0)));
+    }
+
+    /**
+     * @param index index of the element to remove
+     * @return a new list without the element at the given index
+     */
+    @Contract(pure = true, value = "_ -> new")
+    @NotNull PersistentList<E> minus(int index) {
+        checkIndex(index, size());
+        return new PersistentList<>(remove(root, index));
+    }
+
+    @Override
+    @Contract(pure = true, value = "-> new")
+    public @NotNull Iterator<E> iterator() {
+        return new TreeIterator<>(root);
+    }
+
+    @Override
+    @Contract(pure = true, value = "-> new")
+    public @NotNull Object @NotNull [] toArray() {
+        Object[] result = new Object[size()];
+        int index = 0;
+        for (E element : this) {
+            result[index++] = element;
+        }
+        return result;
+    }
+
+    // serialized as a regular list, the tree is not serializable
+    @Contract(pure = true, value = "-> new")
+    private Object writeReplace() {
+        return Collections.unmodifiableList(new ArrayList<>(this));
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static int size(@Nullable Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(@Nullable Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static <E> @Nullable Node<E> build(E @NotNull [] elements, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node<>(elements[middle], build(elements, from, middle), build(elements, middle + 1, to));
+    }
+
+    private static <E> @NotNull Node<E> set(@NotNull Node<E> node, int index, E element) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            //noinspection ConstantConditions
+            return new Node<>(node.value, set(node.left, index, element), node.right);
+        } else if (index > leftSize) {
+            //noinspection ConstantConditions
+            return new Node<>(node.value, node.left, set(node.right, index - leftSize - 1, element));
+        }
+        return new Node<>(element, node.left, node.right);
+    }
+
+    private static <E> @NotNull Node<E> insert(@Nullable Node<E> node, int index, E element) {
+        if (node == null) {
+            return new Node<>(element, null, null);
+        }
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(node.value, insert(node.left, index, element), node.right);
+        }
+        return balance(node.value, node.left, insert(node.right, index - leftSize - 1, element));
+    }
+
+    private static <E> @Nullable Node<E> remove(@NotNull Node<E> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            //noinspection ConstantConditions
+            return balance(node.value, remove(node.left, index), node.right);
+        } else if (index > leftSize) {
+            //noinspection ConstantConditions
+            return balance(node.value, node.left, remove(node.right, index - leftSize - 1));
+        } else if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        // replace by the first element of the right subtree
+        Node<E> first = node.right;
+        while (first.left != null) {
+            first = first.left;
+        }
+        return balance(first.value, node.left, remove(node.right, 0));
+    }
+
+    /**
+     * Join two trees with an element between them, in O(log n).
+     */
+    private static <E> @NotNull Node<E> join(@Nullable Node<E> left, E middle, @Nullable Node<E> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            //noinspection ConstantConditions
+            return balance(left.value, left.left, join(left.right, middle, right));
+        } else if (rightHeight > leftHeight + 1) {
+            //noinspection ConstantConditions
+            return balance(right.value, join(left, middle, right.left), right.right);
+        }
+        return new Node<>(middle, left, right);
+    }
+
+    /**
+     * Create a node from subtrees whose heights differ by at most two, rotating if required.
+     */
+    private static <E> @NotNull Node<E> balance(E value, @Nullable Node<E> left, @Nullable Node<E> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            //noinspection ConstantConditions
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.value, left.left, new Node<>(value, left.right, right));
+            }
+            //noinspection ConstantConditions
+            return new Node<>(left.right.value,
+                new Node<>(left.value, left.left, left.right.left),
+                new Node<>(value, left.right.right, right));
+        } else if (diff < -1) {
+            //noinspection ConstantConditions
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.value, new Node<>(value, left, right.left), right.right);
+            }
+            //noinspection ConstantConditions
+            return new Node<>(right.left.value,
+                new Node<>(value, left, right.left.left),
+                new Node<>(right.value, right.left.right, right.right));
+        }
+        return new Node<>(value, left, right);
+    }
+
+    private static final class Node<E> {
+        private final E value;
+        private final @Nullable Node<E> left;
+        private final @Nullable Node<E> right;
+        private final int size;
+        private final int height;
+
+        private Node(E value, @Nullable Node<E> left, @Nullable Node<E> right) {
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * In-order traversal with an explicit stack, the height of the tree is at most 1.44 * log2(n).
+     */
+    private static final class TreeIterator<E> implements Iterator<E> {
+        @SuppressWarnings("unchecked")
+        private final Node<E>[] stack = (Node<E>[]) new Node<?>[64];
+        private int depth;
+
+        private TreeIterator(@Nullable Node<E> root) {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return depth > 0;
+        }
+
+        @Override
+        public E next() {
+            if (depth == 0) {
+                throw new NoSuchElementException();
+            }
+            Node<E> node = stack[--depth];
+            pushLeft(node.right);
+            return node.value;
+        }
+
+        private void pushLeft(@Nullable Node<E> node) {
+            while (node != null) {
+                stack[depth++] = node;
+                node = node.left;
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable map sorted by its keys, backed by a {@link PersistentList} of entries.
+ * Adding, replacing and removing an entry creates a new map sharing most of its structure with this map,
+ * looking up a key takes O(log n).
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ */
+final class PersistentMap<K extends Comparable<? super K>, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final transient @NotNull PersistentList<Map.Entry<K, V>> entries;
+    private transient @Nullable Set<Map.Entry<K, V>> entrySet;
+
+    private PersistentMap(@NotNull PersistentList<Map.Entry<K, V>> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Create a map containing the given entries, in O(n) for the sorted arrays of a dictionary.
+     * Like with a {@link TreeMap}, keys comparing as equal are merged.
+     *
+     * @param map entries of the new map
+     * @param <K> type of the keys
+     * @param <V> type of the values
+     * @return the given map if it is a persistent map already, a new map otherwise
+     */
+    @SuppressWarnings("unchecked")
+    @Contract(pure = true)
+    static <K extends Comparable<? super K>, V> @NotNull PersistentMap<K, V> of(@NotNull Map<K, V> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap<K, V>) map;
+        } else if (map instanceof SortedArrayMap) {
+            // sorted by the natural order of the keys already, and the entries are immutable
+            return new PersistentMap<>(PersistentList.of(map.entrySet()));
+        }
+        List<Map.Entry<K, V>> sorted = new ArrayList<>(map.size());
+        for (Map.Entry<K, V> entry : new TreeMap<>(map).entrySet()) {
+            sorted.add(new SimpleImmutableEntry<>(entry));
+        }
+        return new PersistentMap<>(PersistentList.of(sorted));
+    }
+
+    @Override
+    @Contract(pure = true)
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    @Contract(pure = true)
+    public boolean containsKey(@Nullable Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public @Nullable V get(@Nullable Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? entries.get(index).getValue() : null;
+    }
+
+    /**
+     * @param key   key of the entry
+     * @param value value of the entry
+     * @return a new map with the given entry added or replaced
+     */
+    @Contract(pure = true, value = "_, _ -> new")
+    @NotNull PersistentMap<K, V> with(@NotNull K key, @NotNull V value) {
+        int index = entries.search(entry -> key.compareTo(entry.getKey()));
+        if (index >= 0) {
+            // keep the original key, like a TreeMap does
+            K original = entries.get(index).getKey();
+            return new PersistentMap<>(entries.with(index, new SimpleImmutableEntry<>(original, value)));
+        }
+        return new PersistentMap<>(entries.plus(-index - 1, new SimpleImmutableEntry<>(key, value)));
+    }
+
+    /**
+     * @param key key of the entry to remove
+     * @return a new map without the given key, this map if the key is not present
+     */
+    @Contract(pure = true)
+    @NotNull PersistentMap<K, V> without(@NotNull K key) {
+        int index = indexOf(key);
+        return index >= 0 ? new PersistentMap<>(entries.minus(index)) : this;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public @NotNull Set<Map.Entry<K, V>> entrySet() {
+        Set<Map.Entry<K, V>> result = entrySet;
+        if (result == null) {
+            entrySet = result = new AbstractSet<Map.Entry<K, V>>() {
+                @Override
+                public @NotNull Iterator<Map.Entry<K, V>> iterator() {
+                    return entries.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private int indexOf(@Nullable Object key) {
+        if (key == null) {
+            return -1;
+        }
+        K typed = (K) key;
+        try {
+            return entries.search(entry -> typed.compareTo(entry.getKey()));
+        } catch (ClassCastException e) {
+            // a key of another type cannot be contained
+            return -1;
+        }
+    }
+
+    // serialized as a regular map, the tree is not serializable
+    @Contract(pure = true, value = "-> new")
+    private Object writeReplace() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this));
+    }
+}
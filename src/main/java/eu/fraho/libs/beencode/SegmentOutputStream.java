@@ -0,0 +1,105 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stream collecting the written data as a sequence of buffers, for a gathering write to a channel.
+ * <p>
+ * Small writes like prefixes, lengths and suffixes are copied into scratch arrays, which are shared by consecutive
+ * segments. Large writes, like the content of strings, are not copied: the segment is a read-only buffer of the
+ * written array or buffer itself. The written arrays and buffers may not be modified afterwards, which holds for the
+ * content of strings and the source of lazy nodes.
+ */
+final class SegmentOutputStream extends EncoderOutputStream {
+    // smaller writes are copied, an own segment would cost more than it saves
+    static final int MIN_REFERENCE_LENGTH = 1024;
+    private static final int CHUNK_SIZE = 8192;
+
+    private final @NotNull List<ByteBuffer> segments = new ArrayList<>();
+    private byte @NotNull [] chunk;
+    // index of the first byte of the chunk not yet part of a segment
+    private int start;
+    private int size;
+
+    /**
+     * @param expectedLength expected count of written bytes, used to size the first scratch array
+     */
+    SegmentOutputStream(long expectedLength) {
+        this.chunk = new byte[(int) Math.max(1, Math.min(CHUNK_SIZE, expectedLength))];
+    }
+
+    @Override
+    public void write(int b) {
+        if (size == chunk.length) {
+            nextChunk(1);
+        }
+        chunk[size++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte @NotNull [] b, int off, int len) {
+        if (len >= MIN_REFERENCE_LENGTH) {
+            reference(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        if (len > chunk.length - size) {
+            nextChunk(len);
+        }
+        System.arraycopy(b, off, chunk, size, len);
+        size += len;
+    }
+
+    @Override
+    void write(@NotNull ByteBuffer buffer) {
+        if (buffer.remaining() >= MIN_REFERENCE_LENGTH) {
+            reference(buffer.duplicate());
+            return;
+        }
+        if (buffer.remaining() > chunk.length - size) {
+            nextChunk(buffer.remaining());
+        }
+        int length = buffer.remaining();
+        buffer.duplicate().get(chunk, size, length);
+        size += length;
+    }
+
+    /**
+     * @return the written data, each buffer positioned at its first byte
+     */
+    @Contract(value = "-> new")
+    ByteBuffer @NotNull [] toSegments() {
+        completeSegment();
+        return segments.toArray(new ByteBuffer[0]);
+    }
+
+    private void reference(@NotNull ByteBuffer content) {
+        completeSegment();
+        segments.add(content.asReadOnlyBuffer());
+    }
+
+    private void completeSegment() {
+        if (size > start) {
+            segments.add(ByteBuffer.wrap(chunk, start, size - start).slice());
+            start = size;
+        }
+    }
+
+    // previous segments keep referencing the full chunk, so a new one is started instead of growing it
+    private void nextChunk(int required) {
+        completeSegment();
+        chunk = new byte[Math.max(CHUNK_SIZE, required)];
+        start = 0;
+        size = 0;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map of dictionary entries in parallel arrays, sorted by the raw bytes of the keys.
+ * Needs no entry objects and no hash codes, looking up a key is a binary search in O(log n).
+ */
+final class SortedArrayMap extends AbstractMap<BString, BNode<?>> implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final transient @NotNull BString @NotNull [] keys;
+    private final transient @NotNull BNode<?> @NotNull [] values;
+    private transient @Nullable Set<Map.Entry<BString, BNode<?>>> entrySet;
+
+    /**
+     * Create a map using the given arrays, without a copy.
+     * The keys have to be strictly ascending by {@link BString#compareBytes(BString, BString)}.
+     *
+     * @param keys   keys of the map, owned by this map afterwards
+     * @param values values of the map with the same length, owned by this map afterwards
+     */
+    SortedArrayMap(@NotNull BString @NotNull [] keys, @NotNull BNode<?> @NotNull [] values) {
+        this.keys = keys;
+        this.values = values;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public int size() {
+        return keys.length;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public boolean containsKey(@Nullable Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    @Contract(pure = true)
+    public @Nullable BNode<?> get(@Nullable Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? values[index] : null;
+    }
+
+    @Override
+    public void forEach(@NotNull BiConsumer<? super BString, ? super BNode<?>> action) {
+        for (int i = 0; i < keys.length; i++) {
+            action.accept(keys[i], values[i]);
+        }
+    }
+
+    @Override
+    @Contract(pure = true)
+    public @NotNull Set<Map.Entry<BString, BNode<?>>> entrySet() {
+        Set<Map.Entry<BString, BNode<?>>> result = entrySet;
+        if (result == null) {
+            entrySet = result = new AbstractSet<Map.Entry<BString, BNode<?>>>() {
+                @Override
+                public @NotNull Iterator<Map.Entry<BString, BNode<?>>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return keys.length;
+                }
+            };
+        }
+        return result;
+    }
+
+    private int indexOf(@Nullable Object key) {
+        if (!(key instanceof BString)) {
+            return -1;
+        }
+        BString search = (BString) key;
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int diff = BString.compareBytes(keys[middle], search);
+            if (diff < 0) {
+                low = middle + 1;
+            } else if (diff > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    // serialized as a regular map, like the other backing maps of BDict
+    @Contract(pure = true, value = "-> new")
+    private Object writeReplace() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(this));
+    }
+
+    private final class EntryIterator implements Iterator<Map.Entry<BString, BNode<?>>> {
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            return index < keys.length;
+        }
+
+        @Override
+        public Map.Entry<BString, BNode<?>> next() {
+            if (index >= keys.length) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<BString, BNode<?>> result = new SimpleImmutableEntry<>(keys[index], values[index]);
+            index++;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decoding engine reading from a stream, used by the {@code of(InputStream, byte)} methods of the node classes.
+ * Nested dictionaries and lists are decoded with a {@link FrameStack} instead of recursion.
+ */
+final class StreamDecoder {
+    private static final byte SUFFIX = 'e';
+
+    private final @NotNull InputStream is;
+    private final @NotNull DecoderState state;
+    private final @NotNull FrameStack frames;
+
+    /**
+     * @param is     stream to read from
+     * @param config settings for decoding
+     */
+    StreamDecoder(@NotNull InputStream is, @NotNull DecoderConfig config) {
+        this.is = is;
+        this.state = new DecoderState(config);
+        this.frames = new FrameStack(state);
+    }
+
+    /**
+     * Decode the element with the given prefix.
+     *
+     * @param prefix first byte of the element, already read from the stream
+     * @return the decoded element
+     * @throws IOException      if reading fails
+     * @throws BencodeException if the data is invalid
+     */
+    @Contract(value = "_ -> new")
+    @NotNull BNode<?> decode(byte prefix) throws IOException {
+        while (true) {
+            BNode<?> value = null;
+            if (BDict.canParsePrefix(prefix)) {
+                frames.push(true);
+            } else if (BList.canParsePrefix(prefix)) {
+                frames.push(false);
+            } else {
+                value = decodeValue(prefix);
+            }
+            // add completed values to their container, until the next value starts
+            while (true) {
+                if (value != null) {
+                    if (frames.isEmpty()) {
+                        return value;
+                    }
+                    frames.add(value);
+                }
+                byte read = (byte) is.read();
+                if (read != SUFFIX) {
+                    prefix = startNext(read);
+                    break;
+                }
+                value = frames.pop();
+            }
+        }
+    }
+
+    /**
+     * Start the next entry or element of the current container.
+     *
+     * @return the prefix of the next value
+     */
+    private byte startNext(byte read) throws IOException {
+        if (!frames.isDict()) {
+            frames.element();
+            return read;
+        }
+        BDict.checkKeyPrefix(read);
+        BString key = BString.of(is, read, state.maxStringLength());
+        state.count(key.encodedLength());
+        frames.key(key);
+        read = (byte) is.read();
+        BDict.checkValuePrefix(read);
+        return read;
+    }
+
+    private @NotNull BNode<?> decodeValue(byte prefix) throws IOException {
+        if (BInteger.canParsePrefix(prefix)) {
+            BInteger result = BInteger.of(is, prefix);
+            state.count(result.encodedLength());
+            return result;
+        } else if (BString.canParsePrefix(prefix)) {
+            BString result = BString.of(is, prefix, state.maxStringLength());
+            state.count(result.encodedLength());
+            return result;
+        } else {
+            throw new BencodeException("No parser found for prefix '" + prefix + "'");
+        }
+    }
+}
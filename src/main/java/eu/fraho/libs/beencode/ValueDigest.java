@@ -0,0 +1,307 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.libs.beencode;
+
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Digests of the encoded value of a single key of a dictionary, for example the info-hash of a torrent.
+ * The digests are computed over the original bytes while decoding, so the value is never encoded again.
+ *
+ * <pre>{@code
+ * ValueDigest result = ValueDigest.decode(stream, "info", "SHA-1", "SHA-256");
+ * BDict torrent = (BDict) result.getNode();
+ * byte[] infoHash = result.getDigest("SHA-1");
+ * }</pre>
+ */
+public final class ValueDigest {
+    private static final byte SUFFIX = 'e';
+
+    private final @Nullable BNode<?> node;
+    private final boolean found;
+    private final @NotNull Map<String, byte[]> digests;
+
+    private ValueDigest(@Nullable BNode<?> node, boolean found, @NotNull Map<String, MessageDigest> digests) {
+        this.node = node;
+        this.found = found;
+        this.digests = new LinkedHashMap<>();
+        for (Map.Entry<String, MessageDigest> entry : digests.entrySet()) {
+            this.digests.put(entry.getKey(), entry.getValue().digest());
+        }
+    }
+
+    /**
+     * Decode the dictionary from the given stream and compute the digests of the value with the given key.
+     *
+     * @param is         stream of data
+     * @param key        key of the value to digest
+     * @param algorithms names of the {@link MessageDigest} algorithms to use, like {@code SHA-1}
+     * @return the decoded dictionary and the digests
+     * @throws IOException              if reading from the stream fails
+     * @throws BencodeException         if the data is invalid or not a dictionary
+     * @throws IllegalArgumentException if an algorithm is not available
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull ValueDigest decode(@NotNull InputStream is, @NotNull String key, @NotNull String @NotNull ... algorithms) throws IOException {
+        BString name = BString.of(key);
+        DigestingInputStream dis = new DigestingInputStream(is, createDigests(algorithms));
+        byte read = (byte) dis.read();
+        if (!BDict.canParsePrefix(read)) {
+            throw new BencodeException("Expected a dictionary, but got prefix '" + read + "'");
+        }
+        BDict.Builder result = BDict.builder();
+        boolean found = false;
+        while ((read = (byte) dis.read()) != SUFFIX) {
+            BDict.checkKeyPrefix(read);
+            BString current = BString.of(dis, read);
+            read = (byte) dis.read();
+            BDict.checkValuePrefix(read);
+            if (current.equals(name)) {
+                // the prefix of the value has already been read
+                dis.start(read);
+                found = true;
+            }
+            result.put(current, NodeFactory.decode(dis, read));
+            dis.stop();
+        }
+        return new ValueDigest(result.build(), found, dis.digests);
+    }
+
+    /**
+     * Compute the digests of the value with the given key, without decoding the dictionary.
+     * Only the key of each entry is read, all other data is skipped.
+     *
+     * @param is         stream of data
+     * @param key        key of the value to digest
+     * @param algorithms names of the {@link MessageDigest} algorithms to use, like {@code SHA-1}
+     * @return the digests, without a node
+     * @throws IOException              if reading from the stream fails
+     * @throws BencodeException         if the data is invalid or not a dictionary
+     * @throws IllegalArgumentException if an algorithm is not available
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull ValueDigest digest(@NotNull InputStream is, @NotNull String key, @NotNull String @NotNull ... algorithms) throws IOException {
+        BString name = BString.of(key);
+        DigestingInputStream dis = new DigestingInputStream(is, createDigests(algorithms));
+        BencodeParser parser = BencodeParser.of(dis);
+        if (parser.next() != BencodeParser.Event.START_DICT) {
+            throw new BencodeException("Expected a dictionary, but got " + parser.getEvent());
+        }
+        boolean found = false;
+        while (parser.next() == BencodeParser.Event.KEY) {
+            if (!parser.getString().equals(name)) {
+                parser.skipValue();
+                continue;
+            }
+            dis.start();
+            found = true;
+            BencodeParser.Event event = parser.next();
+            if (event == BencodeParser.Event.STRING) {
+                // read the content right away, otherwise it would be skipped after the digest is stopped
+                parser.getString();
+            } else {
+                parser.skipValue();
+            }
+            dis.stop();
+        }
+        return new ValueDigest(null, found, dis.digests);
+    }
+
+    /**
+     * Decode the dictionary from the given array and compute the digests of the value with the given key.
+     * The array is decoded lazily, like with {@link NodeFactory#decodeLazy(byte[])}, so it may not be modified
+     * afterwards.
+     *
+     * @param data       encoded data
+     * @param key        key of the value to digest
+     * @param algorithms names of the {@link MessageDigest} algorithms to use, like {@code SHA-1}
+     * @return the decoded dictionary and the digests
+     * @throws BencodeException         if the data is invalid or not a dictionary
+     * @throws IllegalArgumentException if an algorithm is not available
+     */
+    @Contract(value = "_, _, _ -> new")
+    public static @NotNull ValueDigest decode(byte @NotNull [] data, @NotNull String key, @NotNull String @NotNull ... algorithms) {
+        Map<String, MessageDigest> digests = createDigests(algorithms);
+        BNode<?> result = NodeFactory.decodeLazy(data);
+        if (!(result instanceof BDict)) {
+            throw new BencodeException("Expected a dictionary, but got " + result.getClass().getSimpleName());
+        }
+        BNode<?> value = ((BDict) result).get(BString.of(key));
+        if (value != null) {
+            // lazy nodes write their original bytes, strings and integers only have a single valid encoding
+            try {
+                value.write(new DigestingOutputStream(digests));
+            } catch (IOException e) {
+                // should never happen as we only update the digests
+                throw new BencodeException(e);
+            }
+        }
+        return new ValueDigest(result, value != null, digests);
+    }
+
+    /**
+     * @return the decoded dictionary, null if created by {@link #digest(InputStream, String, String...)}
+     */
+    @Contract(pure = true)
+    public @Nullable BNode<?> getNode() {
+        return node;
+    }
+
+    /**
+     * @return was the key found?
+     */
+    @Contract(pure = true)
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * Get the digest of the value computed with the given algorithm.
+     *
+     * @param algorithm name of the algorithm
+     * @return the digest, null if the key was not found
+     * @throws IllegalArgumentException if the algorithm has not been requested
+     */
+    @Contract(pure = true)
+    public byte @Nullable [] getDigest(@NotNull String algorithm) {
+        if (!found) {
+            return null;
+        }
+        byte[] result = digests.get(algorithm);
+        if (result == null) {
+            throw new IllegalArgumentException("Digest was not computed: " + algorithm);
+        }
+        return result.clone();
+    }
+
+    private static @NotNull Map<String, MessageDigest> createDigests(@NotNull String @NotNull [] algorithms) {
+        Map<String, MessageDigest> result = new LinkedHashMap<>();
+        for (String algorithm : algorithms) {
+            Objects.requireNonNull(algorithm, "algorithm may not be null");
+            try {
+                result.put(algorithm, MessageDigest.getInstance(algorithm));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalArgumentException("Unknown digest algorithm: " + algorithm, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stream updating the digests with all bytes read while started.
+     */
+    private static final class DigestingInputStream extends FilterInputStream {
+        private final @NotNull Map<String, MessageDigest> digests;
+        private final byte @NotNull [] skipBuffer = new byte[8192];
+        private boolean active;
+
+        private DigestingInputStream(@NotNull InputStream in, @NotNull Map<String, MessageDigest> digests) {
+            super(in);
+            this.digests = digests;
+        }
+
+        /**
+         * Start a new digest, dropping the data of a previous value with the same key.
+         */
+        void start() {
+            for (MessageDigest digest : digests.values()) {
+                digest.reset();
+            }
+            active = true;
+        }
+
+        void start(byte first) {
+            start();
+            update(first);
+        }
+
+        void stop() {
+            active = false;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int result = super.read();
+            if (active && result >= 0) {
+                update((byte) result);
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte @NotNull [] b, int off, int len) throws IOException {
+            int result = super.read(b, off, len);
+            if (active && result > 0) {
+                update(b, off, result);
+            }
+            return result;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (!active) {
+                return super.skip(n);
+            }
+            // skipped bytes have to be digested as well
+            return Math.max(0, read(skipBuffer, 0, (int) Math.min(n, skipBuffer.length)));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void update(byte b) {
+            for (MessageDigest digest : digests.values()) {
+                digest.update(b);
+            }
+        }
+
+        private void update(byte @NotNull [] b, int off, int len) {
+            for (MessageDigest digest : digests.values()) {
+                digest.update(b, off, len);
+            }
+        }
+    }
+
+    /**
+     * Stream updating the digests with all written bytes.
+     */
+    private static final class DigestingOutputStream extends OutputStream {
+        private final @NotNull Map<String, MessageDigest> digests;
+
+        private DigestingOutputStream(@NotNull Map<String, MessageDigest> digests) {
+            this.digests = digests;
+        }
+
+        @Override
+        public void write(int b) {
+            for (MessageDigest digest : digests.values()) {
+                digest.update((byte) b);
+            }
+        }
+
+        @Override
+        public void write(byte @NotNull [] b, int off, int len) {
+            for (MessageDigest digest : digests.values()) {
+                digest.update(b, off, len);
+            }
+        }
+    }
+}
@@ -14,6 +14,8 @@ import java.io.ObjectOutputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
 public abstract class AbstractTest<T extends BNode<?>> {
     protected abstract T getSampleA();
@@ -25,6 +27,8 @@ public abstract class AbstractTest<T extends BNode<?>> {
     protected abstract String getSampleAToString();
 
     protected void testStreamFail(String testname) throws IOException {
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(readTestData(testname)));
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of(readTestData(testname)).readValue());
         try (FileInputStream fstream = new FileInputStream(new File("src/test/resources/data/",
             testname + ".dat"))) {
             NodeFactory.decode(fstream);
@@ -33,11 +37,17 @@ public abstract class AbstractTest<T extends BNode<?>> {
 
     protected void testStreamSuccess(String testname, BNode<?> expected)
         throws IOException {
+        Assertions.assertEquals(expected, NodeFactory.decode(readTestData(testname)), "Received unexpected result from array");
+        Assertions.assertEquals(expected, BencodeParser.of(readTestData(testname)).readValue(), "Received unexpected result from parser");
         try (FileInputStream fstream = new FileInputStream(new File("src/test/resources/data/", testname + ".dat"))) {
             Assertions.assertEquals(expected, NodeFactory.decode(fstream), "Received unexpected result");
         }
     }
 
+    protected byte[] readTestData(String testname) throws IOException {
+        return Files.readAllBytes(Paths.get("src/test/resources/data/", testname + ".dat"));
+    }
+
     @Test
     public final void testEquals() {
         T a = getSampleA();
@@ -66,7 +76,11 @@ public abstract class AbstractTest<T extends BNode<?>> {
     @Test
     public final void testJavaSerialization() throws IOException, ClassNotFoundException {
         BNode<?> toWrite = getSampleA();
-        BNode<?> hasRead;
+        BNode<?> hasRead = serializeAndRead(toWrite);
+        Assertions.assertEquals(toWrite, hasRead, "Object written and read match");
+    }
+
+    protected BNode<?> serializeAndRead(BNode<?> toWrite) throws IOException, ClassNotFoundException {
         byte[] written;
         try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
             try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
@@ -77,10 +91,8 @@ public abstract class AbstractTest<T extends BNode<?>> {
 
         try (ByteArrayInputStream bis = new ByteArrayInputStream(written)) {
             ObjectInputStream ois = new ObjectInputStream(bis);
-            hasRead = (BNodeBase<?>) ois.readObject();
+            return (BNodeBase<?>) ois.readObject();
         }
-
-        Assertions.assertEquals(toWrite, hasRead, "Object written and read match");
     }
 
 
@@ -98,6 +110,16 @@ public abstract class AbstractTest<T extends BNode<?>> {
         }
     }
 
+    @Test
+    public void testDecodeByteArray() {
+        Assertions.assertEquals(getSampleA(), NodeFactory.decode(getSampleAEncoded().getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    public void testEncodedLength() {
+        Assertions.assertEquals(getSampleAEncoded().length(), getSampleA().encodedLength());
+    }
+
     @Test
     public void testWrite() throws IOException {
         try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
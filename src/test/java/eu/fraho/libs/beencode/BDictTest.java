@@ -6,7 +6,10 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -183,4 +186,129 @@ public class BDictTest extends AbstractTest<BDict> {
         Assertions.assertThrows(BencodeException.class, () -> BDict.of(BString.of("x"), null));
         Assertions.assertThrows(BencodeException.class, () -> BDict.of(null, BString.of("x")));
     }
+
+    @Test
+    public void testWithManyEntries() {
+        BDict testee = BDict.of();
+        Map<BString, BNode<?>> expected = new TreeMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            BString key = BString.of("key" + (i * 7919 % 50_000));
+            testee = testee.with(key, BInteger.of(i));
+            expected.put(key, BInteger.of(i));
+        }
+        Assertions.assertEquals(50_000, testee.size());
+        Assertions.assertEquals(expected, testee);
+        Assertions.assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(testee.keySet()));
+
+        BDict smaller = testee;
+        for (int i = 0; i < 50_000; i += 2) {
+            smaller = smaller.without("key" + i);
+        }
+        Assertions.assertEquals(25_000, smaller.size());
+        Assertions.assertEquals(50_000, testee.size());
+        Assertions.assertNull(smaller.get("key0"));
+        Assertions.assertEquals(expected.get(BString.of("key1")), smaller.get("key1"));
+    }
+
+    @Test
+    public void testWithIsPersistent() throws IOException, ClassNotFoundException {
+        BDict a = getSampleA().with(BString.of("baz"), BInteger.of(1));
+        BDict b = a.with(BString.of("foo"), BInteger.of(2));
+        BDict c = b.without("bar");
+
+        Assertions.assertEquals("{bar=test, baz=1, foo=13}", a.toString());
+        Assertions.assertEquals("{bar=test, baz=1, foo=2}", b.toString());
+        Assertions.assertEquals("{baz=1, foo=2}", c.toString());
+        Assertions.assertSame(c, c.without("bar"));
+        Assertions.assertEquals(BDict.of(BString.of("baz"), BInteger.of(1), BString.of("foo"), BInteger.of(2)), c);
+        Assertions.assertEquals(c, serializeAndRead(c));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> c.getValue().put(BString.of("x"), c));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> c.entrySet().iterator().remove());
+    }
+
+    @Test
+    public void testBuilder() {
+        BDict.Builder builder = BDict.builder(2)
+            .put("foo", BInteger.of(13))
+            .put(BString.of("bar"), BString.of("test"));
+        Assertions.assertEquals(2, builder.size());
+        BDict testee = builder.build();
+        Assertions.assertEquals(getSampleA(), testee);
+        Assertions.assertEquals(getSampleAToString(), testee.toString());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> testee.getValue().clear());
+
+        // the map is owned by the node now
+        Assertions.assertThrows(IllegalStateException.class, () -> builder.put("baz", BInteger.of(1)));
+        Assertions.assertThrows(IllegalStateException.class, builder::build);
+        Assertions.assertEquals(2, testee.size());
+    }
+
+    @Test
+    public void testBuilderReplace() {
+        BDict testee = BDict.builder()
+            .put("foo", BInteger.of(1))
+            .put("bar", BInteger.of(2))
+            .put("foo", BInteger.of(3))
+            .build();
+        Assertions.assertEquals("{foo=3, bar=2}", testee.toString());
+    }
+
+    @Test
+    public void testBuilderInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BDict.builder(-1));
+        Assertions.assertThrows(BencodeException.class, () -> BDict.builder().put("foo", null));
+        Assertions.assertThrows(BencodeException.class, () -> BDict.builder().put((BString) null, BInteger.of(1)));
+    }
+
+    @Test
+    public void testSortedArrays() throws IOException, ClassNotFoundException {
+        BDict testee = (BDict) NodeFactory.decode("d1:ai1e1:bi2e2:bbi3e1:ci4ee".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertTrue(testee.getValue() instanceof SortedArrayMap);
+        Assertions.assertEquals("{a=1, b=2, bb=3, c=4}", testee.toString());
+        // the arrays of the builder are trimmed to the count of entries
+        Assertions.assertEquals(4, testee.size());
+        Assertions.assertEquals(4, testee.entrySet().size());
+        List<BString> keys = new ArrayList<>();
+        testee.forEach((key, value) -> keys.add(key));
+        Assertions.assertEquals(4, keys.size());
+        Assertions.assertEquals(BInteger.of(3), testee.get("bb"));
+        Assertions.assertEquals(BInteger.of(4), testee.get("c"));
+        Assertions.assertNull(testee.get("0"));
+        Assertions.assertNull(testee.get("ba"));
+        Assertions.assertNull(testee.get("d"));
+        Assertions.assertNull(testee.get((Object) "a"));
+        Assertions.assertTrue(testee.containsKey(BString.of("a")));
+
+        Map<BString, BNode<?>> expected = new HashMap<>();
+        expected.put(BString.of("c"), BInteger.of(4));
+        expected.put(BString.of("bb"), BInteger.of(3));
+        expected.put(BString.of("b"), BInteger.of(2));
+        expected.put(BString.of("a"), BInteger.of(1));
+        Assertions.assertEquals(BDict.of(expected), testee);
+        Assertions.assertEquals(BDict.of(expected).hashCode(), testee.hashCode());
+        Assertions.assertEquals(testee, serializeAndRead(testee));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> testee.getValue().put(BString.of("x"), testee));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> testee.entrySet().iterator().remove());
+    }
+
+    @Test
+    public void testSortedArraysRawBytes() {
+        // keys are sorted by their unsigned bytes, not by their characters
+        BDict testee = BDict.builder()
+            .put(BString.of(new byte[]{'z'}), BInteger.of(1))
+            .put(BString.of(new byte[]{(byte) 0x80}), BInteger.of(2))
+            .put(BString.of(new byte[]{(byte) 0xff}), BInteger.of(3))
+            .build();
+        Assertions.assertTrue(testee.getValue() instanceof SortedArrayMap);
+        Assertions.assertEquals(BInteger.of(2), testee.get(BString.of(new byte[]{(byte) 0x80})));
+        Assertions.assertEquals(BInteger.of(3), testee.get(BString.of(new byte[]{(byte) 0xff})));
+    }
+
+    @Test
+    public void testUnsortedKeepsOrder() {
+        BDict testee = (BDict) NodeFactory.decode("d1:bi1e1:ai2e1:ci3e1:ai4ee".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertFalse(testee.getValue() instanceof SortedArrayMap);
+        Assertions.assertEquals("{b=1, a=4, c=3}", testee.toString());
+        Assertions.assertEquals(BInteger.of(4), testee.get("a"));
+    }
 }
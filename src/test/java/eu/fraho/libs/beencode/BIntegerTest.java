@@ -7,6 +7,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
+import java.util.Objects;
 
 public class BIntegerTest extends AbstractTest<BInteger> {
     @Override
@@ -159,6 +160,24 @@ public class BIntegerTest extends AbstractTest<BInteger> {
         });
     }
 
+    @Test
+    public void testStreamLimits() throws IOException {
+        String[] values = {"0", "-1", "9223372036854775807", "-9223372036854775808", "9223372036854775808",
+            "-9223372036854775809", "99999999999999999999"};
+        for (String value : values) {
+            try (InputStream is = new ByteArrayInputStream(("i" + value + "e4:rest").getBytes())) {
+                Assertions.assertEquals(BInteger.of(new BigInteger(value)), BInteger.of(is));
+                Assertions.assertEquals(BString.of("rest"), BString.of(is));
+            }
+        }
+        String[] invalid = {"ie", "i-e", "i-0e", "i01e", "i1-e", "i-99999999999999999999e"};
+        for (String value : invalid) {
+            try (InputStream is = new ByteArrayInputStream(value.getBytes())) {
+                Assertions.assertThrows(BencodeException.class, () -> BInteger.of(is), value);
+            }
+        }
+    }
+
     @Test
     public void testOfInvalidPrefix() throws IOException {
         try (InputStream is = new ByteArrayInputStream(new byte[0])) {
@@ -168,6 +187,50 @@ public class BIntegerTest extends AbstractTest<BInteger> {
         }
     }
 
+    @Test
+    public void testLongValue() {
+        Assertions.assertEquals(13L, BInteger.of(13).longValue());
+        Assertions.assertEquals(Long.MIN_VALUE, BInteger.of(Long.MIN_VALUE).longValue());
+        Assertions.assertEquals(Long.MAX_VALUE, BInteger.of(BigInteger.valueOf(Long.MAX_VALUE)).longValue());
+        Assertions.assertThrows(ArithmeticException.class, () -> BInteger.of(new BigInteger("9223372036854775808")).longValue());
+    }
+
+    @Test
+    public void testIntValue() {
+        Assertions.assertEquals(-42, BInteger.of(-42L).intValue());
+        Assertions.assertEquals(Integer.MIN_VALUE, BInteger.of(Integer.MIN_VALUE).intValue());
+        Assertions.assertThrows(ArithmeticException.class, () -> BInteger.of(Integer.MAX_VALUE + 1L).intValue());
+    }
+
+    @Test
+    public void testCache() {
+        Assertions.assertSame(BInteger.of(-128), BInteger.of(-128L));
+        Assertions.assertSame(BInteger.of(1024), BInteger.of(BigInteger.valueOf(1024)));
+        Assertions.assertSame(BInteger.of(0), NodeFactory.decode("i0e".getBytes()));
+        Assertions.assertNotSame(BInteger.of(1025), BInteger.of(1025));
+        Assertions.assertNotSame(BInteger.of(-129), BInteger.of(-129));
+    }
+
+    @Test
+    public void testValueAndHashCode() {
+        for (long value : new long[]{0, 1, -1, 1337, -1337, Integer.MAX_VALUE, Integer.MIN_VALUE, 1L << 32, -(1L << 32),
+            (1L << 32) + 5, 0x7FFFFFFF12345678L, -0x7FFFFFFF12345678L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            BInteger testee = BInteger.of(value);
+            Assertions.assertEquals(BigInteger.valueOf(value), testee.getValue());
+            Assertions.assertEquals(Long.toString(value), testee.toString());
+            Assertions.assertEquals(Objects.hash(BInteger.class, BigInteger.valueOf(value)), testee.hashCode());
+            Assertions.assertArrayEquals(("i" + value + "e").getBytes(), NodeFactory.encode(testee));
+        }
+    }
+
+    @Test
+    public void testCompareLarge() {
+        BInteger large = BInteger.of(new BigInteger("1598574885652145874569988813"));
+        Assertions.assertTrue(large.compareTo(BInteger.of(Long.MAX_VALUE)) > 0);
+        Assertions.assertTrue(BInteger.of(Long.MIN_VALUE).compareTo(BInteger.of(Long.MAX_VALUE)) < 0);
+        Assertions.assertArrayEquals("i1598574885652145874569988813e".getBytes(), NodeFactory.encode(large));
+    }
+
     @Test
     public void testClone() {
         BInteger orig = BInteger.of(42);
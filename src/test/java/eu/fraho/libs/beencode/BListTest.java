@@ -223,4 +223,66 @@ public class BListTest extends AbstractTest<BList> {
     public void testOfNullElement() {
         Assertions.assertThrows(BencodeException.class, () -> BList.of(BInteger.of(1), null, BInteger.of(2)));
     }
+
+    @Test
+    public void testWithManyElements() {
+        BList testee = BList.of();
+        List<BNode<?>> expected = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            testee = testee.with(BInteger.of(i));
+            expected.add(BInteger.of(i));
+        }
+        Assertions.assertEquals(expected, testee);
+
+        BList smaller = testee;
+        for (int i = 0; i < 10_000; i++) {
+            int index = i * 7919 % smaller.size();
+            smaller = smaller.without(index);
+            expected.remove(index);
+        }
+        Assertions.assertEquals(expected, smaller);
+        Assertions.assertEquals(40_000, smaller.size());
+        Assertions.assertEquals(50_000, testee.size());
+        Assertions.assertEquals(expected.get(12_345), smaller.get(12_345));
+    }
+
+    @Test
+    public void testWithIsPersistent() throws IOException, ClassNotFoundException {
+        BList a = getSampleB().with(BInteger.of(1));
+        BList b = a.join(getSampleB());
+        BList c = b.without(BInteger.of(13));
+
+        Assertions.assertEquals("[13, test, 1]", a.toString());
+        Assertions.assertEquals("[13, test, 1, 13, test]", b.toString());
+        Assertions.assertEquals("[test, 1, 13, test]", c.toString());
+        Assertions.assertEquals(BList.of(BString.of("test"), BInteger.of(1), BInteger.of(13), BString.of("test")), c);
+        Assertions.assertEquals(c, serializeAndRead(c));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> c.without(4));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> c.get(-1));
+        Assertions.assertThrows(BencodeException.class, () -> c.with(BInteger.of(1), null));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> c.getValue().add(c));
+    }
+
+    @Test
+    public void testBuilder() {
+        BList.Builder builder = BList.builder(2)
+            .add(BInteger.of(13))
+            .add(BString.of("test"));
+        Assertions.assertEquals(2, builder.size());
+        BList testee = builder.build();
+        Assertions.assertEquals(getSampleB(), testee);
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> testee.getValue().clear());
+
+        // the list is owned by the node now
+        Assertions.assertThrows(IllegalStateException.class, () -> builder.add(BInteger.of(1)));
+        Assertions.assertThrows(IllegalStateException.class, builder::build);
+        Assertions.assertEquals(2, testee.size());
+    }
+
+    @Test
+    public void testBuilderInvalid() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> BList.builder(-1));
+        Assertions.assertThrows(BencodeException.class, () -> BList.builder().add(null));
+        Assertions.assertEquals(0, BList.builder().build().size());
+    }
 }
@@ -8,6 +8,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 
 public class BStringTest extends AbstractTest<BString> {
@@ -150,6 +153,70 @@ public class BStringTest extends AbstractTest<BString> {
         Assertions.assertNotEquals(a, b);
     }
 
+    @Test
+    public void testLengthAndByteAt() {
+        BString str = BString.of("foo");
+        Assertions.assertEquals(3, str.length());
+        Assertions.assertEquals('o', str.byteAt(2));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> str.byteAt(3));
+
+        BString view = BString.view("XXfooYY".getBytes(), 2, 3);
+        Assertions.assertEquals(3, view.length());
+        Assertions.assertEquals('f', view.byteAt(0));
+        Assertions.assertEquals('o', view.byteAt(2));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> view.byteAt(3));
+    }
+
+    @Test
+    public void testViewArray() {
+        byte[] data = "XXfoobarYY".getBytes();
+        BString view = BString.view(data, 2, 6);
+        Assertions.assertEquals("6:foobar", new String(NodeFactory.encode(view)));
+        Assertions.assertEquals(BString.of("foobar"), view);
+        Assertions.assertArrayEquals("foobar".getBytes(), view.getValue());
+    }
+
+    @Test
+    public void testHashCodeView() {
+        byte[] data = new byte[300];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.flip();
+        BString view = BString.view(buffer);
+        BString copy = BString.of(data);
+        Assertions.assertEquals(copy.hashCode(), view.hashCode());
+        Assertions.assertEquals(copy.hashCode(), view.hashCode());
+        Assertions.assertEquals(copy, view);
+        Assertions.assertNotEquals(BString.of("a"), BString.of("b"));
+        Assertions.assertNotEquals(BString.of("a"), BString.of("ab"));
+    }
+
+    @Test
+    public void testView() throws IOException, ClassNotFoundException {
+        ByteBuffer buffer = ByteBuffer.wrap("XXfoobarYY".getBytes());
+        buffer.position(2);
+        buffer.limit(8);
+        BString view = BString.view(buffer);
+        Assertions.assertEquals(BString.of("foobar"), view);
+        Assertions.assertEquals(BString.of("foobar").hashCode(), view.hashCode());
+        Assertions.assertEquals("6:foobar", new String(NodeFactory.encode(view)));
+        Assertions.assertEquals(2, buffer.position());
+
+        byte[] written;
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(BString.view(ByteBuffer.wrap("lorem".getBytes())));
+            }
+            written = bos.toByteArray();
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(written))) {
+            Assertions.assertEquals(BString.of("lorem"), ois.readObject());
+        }
+    }
+
     @Test
     public void testClone() {
         BString orig = BString.of("foobar");
@@ -158,4 +225,36 @@ public class BStringTest extends AbstractTest<BString> {
         Assertions.assertEquals(orig, clone);
         Assertions.assertNotSame(orig, clone);
     }
+
+    @Test
+    public void testCompareTo() {
+        BString a = BString.of("a");
+        BString ab = BString.of("ab");
+        BString b = BString.of("b");
+        BString high = BString.of(new byte[]{(byte) 0xc3, (byte) 0xa4});
+        Assertions.assertEquals(0, a.compareTo(BString.of("a")));
+        Assertions.assertTrue(a.compareTo(ab) < 0);
+        Assertions.assertTrue(ab.compareTo(b) < 0);
+        Assertions.assertTrue(b.compareTo(a) > 0);
+        Assertions.assertTrue(BString.of("").compareTo(a) < 0);
+        // bytes are unsigned, independent of the default charset
+        Assertions.assertTrue(BString.of("z").compareTo(high) < 0);
+        Assertions.assertTrue(high.compareTo(BString.of(new byte[]{(byte) 0xc3})) > 0);
+    }
+
+    @Test
+    public void testCompareToView() {
+        byte[] data = "xxabcxx".getBytes(StandardCharsets.US_ASCII);
+        BString array = BString.view(data, 2, 3);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data).flip();
+        buffer.position(2).limit(5);
+        BString direct = BString.view(buffer);
+
+        Assertions.assertEquals(0, array.compareTo(BString.of("abc")));
+        Assertions.assertEquals(0, direct.compareTo(array));
+        Assertions.assertTrue(direct.compareTo(BString.of("abd")) < 0);
+        Assertions.assertTrue(BString.of("ab").compareTo(direct) < 0);
+        Assertions.assertTrue(array.compareTo(BString.of(new byte[]{(byte) 0x80})) < 0);
+    }
 }
@@ -0,0 +1,387 @@
+package eu.fraho.libs.beencode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+public class BencodeParserTest {
+    private static final String TORRENT = "src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat";
+
+    @Test
+    public void testEvents() throws IOException {
+        BencodeParser parser = BencodeParser.of("d3:fooi13e3:barl4:testdeee".getBytes());
+        Assertions.assertNull(parser.getEvent());
+        List<BencodeParser.Event> events = new ArrayList<>();
+        while (parser.hasNext()) {
+            events.add(parser.next());
+        }
+        Assertions.assertEquals(Arrays.asList(
+            BencodeParser.Event.START_DICT,
+            BencodeParser.Event.KEY,
+            BencodeParser.Event.INTEGER,
+            BencodeParser.Event.KEY,
+            BencodeParser.Event.START_LIST,
+            BencodeParser.Event.STRING,
+            BencodeParser.Event.START_DICT,
+            BencodeParser.Event.END,
+            BencodeParser.Event.END,
+            BencodeParser.Event.END
+        ), events);
+        Assertions.assertThrows(NoSuchElementException.class, parser::next);
+    }
+
+    @Test
+    public void testValues() throws IOException {
+        BencodeParser parser = BencodeParser.of("d3:fooi-13e3:barl4:testee".getBytes());
+        Assertions.assertEquals(BencodeParser.Event.START_DICT, parser.next());
+        Assertions.assertEquals(1, parser.getDepth());
+        Assertions.assertEquals(BencodeParser.Event.KEY, parser.next());
+        Assertions.assertEquals(BString.of("foo"), parser.getString());
+        Assertions.assertEquals(BString.of("foo"), parser.getString());
+        Assertions.assertThrows(IllegalStateException.class, parser::getInteger);
+        Assertions.assertEquals(BencodeParser.Event.INTEGER, parser.next());
+        Assertions.assertEquals(BInteger.of(-13), parser.getInteger());
+        Assertions.assertThrows(IllegalStateException.class, parser::getString);
+        Assertions.assertEquals(BencodeParser.Event.KEY, parser.next());
+        Assertions.assertEquals(BencodeParser.Event.START_LIST, parser.next());
+        Assertions.assertEquals(2, parser.getDepth());
+        Assertions.assertEquals(BencodeParser.Event.STRING, parser.next());
+        Assertions.assertEquals(BString.of("test"), parser.getString());
+        Assertions.assertEquals(BencodeParser.Event.END, parser.next());
+        Assertions.assertEquals(1, parser.getDepth());
+        Assertions.assertEquals(BencodeParser.Event.END, parser.next());
+        Assertions.assertEquals(0, parser.getDepth());
+        Assertions.assertFalse(parser.hasNext());
+    }
+
+    @Test
+    public void testSkipValue() throws IOException {
+        BencodeParser parser = BencodeParser.of("d1:ad1:xli1ei2eee1:b3:foo1:cl1:y1:zee".getBytes());
+        Assertions.assertEquals(BencodeParser.Event.START_DICT, parser.next());
+        Assertions.assertEquals(BencodeParser.Event.KEY, parser.next());
+        parser.skipValue();
+        Assertions.assertEquals(BencodeParser.Event.KEY, parser.next());
+        Assertions.assertEquals(BString.of("b"), parser.getString());
+        parser.skipValue();
+        Assertions.assertEquals(BencodeParser.Event.KEY, parser.next());
+        Assertions.assertEquals(BString.of("c"), parser.getString());
+        Assertions.assertEquals(BencodeParser.Event.START_LIST, parser.next());
+        parser.skipValue();
+        Assertions.assertEquals(1, parser.getDepth());
+        Assertions.assertEquals(BencodeParser.Event.END, parser.next());
+        Assertions.assertFalse(parser.hasNext());
+    }
+
+    @Test
+    public void testSkipWholeElement() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap("d1:ai1ee4:test".getBytes());
+        BencodeParser.of(buffer).skipValue();
+        Assertions.assertEquals(8, buffer.position());
+        Assertions.assertEquals(BString.of("test"), BencodeParser.of(buffer).readValue());
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testSkipLargeString() throws IOException {
+        byte[] data = new byte[1_000_000];
+        Arrays.fill(data, (byte) 'x');
+        byte[] prefix = "l1000000:".getBytes();
+        byte[] suffix = "i42ee".getBytes();
+        byte[] encoded = new byte[prefix.length + data.length + suffix.length];
+        System.arraycopy(prefix, 0, encoded, 0, prefix.length);
+        System.arraycopy(data, 0, encoded, prefix.length, data.length);
+        System.arraycopy(suffix, 0, encoded, prefix.length + data.length, suffix.length);
+
+        try (InputStream is = new ByteArrayInputStream(encoded)) {
+            BencodeParser parser = BencodeParser.of(is);
+            Assertions.assertEquals(BencodeParser.Event.START_LIST, parser.next());
+            Assertions.assertEquals(BencodeParser.Event.STRING, parser.next());
+            Assertions.assertEquals(BencodeParser.Event.INTEGER, parser.next());
+            Assertions.assertEquals(BInteger.of(42), parser.getInteger());
+        }
+    }
+
+    @Test
+    public void testReadValue() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(TORRENT));
+        Assertions.assertEquals(NodeFactory.decode(data), BencodeParser.of(data).readValue());
+    }
+
+    @Test
+    public void testReadValueAtEnd() throws IOException {
+        BencodeParser parser = BencodeParser.of("le".getBytes());
+        parser.next();
+        parser.next();
+        Assertions.assertThrows(IllegalStateException.class, parser::readValue);
+    }
+
+    @Test
+    public void testExtractField() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(TORRENT));
+        BString expected = BString.of("debian-9.4.0-amd64-DVD-1.iso");
+        try (InputStream is = new ByteArrayInputStream(data)) {
+            Assertions.assertEquals(expected, extractInfoName(BencodeParser.of(is)));
+        }
+        Assertions.assertEquals(expected, extractInfoName(BencodeParser.of(data)));
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data);
+        direct.flip();
+        Assertions.assertEquals(expected, extractInfoName(BencodeParser.of(direct)));
+    }
+
+    @Test
+    public void testInvalidData() {
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of("d3:fooe".getBytes()).readValue());
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of("di1ei2ee".getBytes()).readValue());
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of("i012e".getBytes()).readValue());
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of("i1234567890123456789012e".getBytes()).readValue());
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of("5:abc".getBytes()).readValue());
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of("x".getBytes()).readValue());
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of(new byte[0]).next());
+    }
+
+    @Test
+    public void testStringTooLong() throws IOException {
+        BencodeParser parser = BencodeParser.of(((BString.DEFAULT_MAX_READ_LEN + 1) + ":").getBytes());
+        Assertions.assertEquals(BencodeParser.Event.STRING, parser.next());
+        Assertions.assertThrows(BencodeException.class, parser::getString);
+    }
+
+    @Test
+    public void testAccept() throws IOException {
+        List<String> events = new ArrayList<>();
+        BencodeParser.of("d3:fooi-13e3:barl4:testdeee".getBytes()).accept(new BencodeHandler() {
+            @Override
+            public void onDictStart() {
+                events.add("dict");
+            }
+
+            @Override
+            public void onKey(byte[] data, int offset, int length) {
+                events.add("key " + new String(data, offset, length));
+            }
+
+            @Override
+            public void onString(byte[] data, int offset, int length) {
+                events.add("string " + new String(data, offset, length));
+            }
+
+            @Override
+            public void onInteger(long value) {
+                events.add("integer " + value);
+            }
+
+            @Override
+            public void onListStart() {
+                events.add("list");
+            }
+
+            @Override
+            public void onEnd() {
+                events.add("end");
+            }
+        });
+        Assertions.assertEquals(Arrays.asList("dict", "key foo", "integer -13", "key bar", "list",
+            "string test", "dict", "end", "end", "end"), events);
+    }
+
+    @Test
+    public void testAcceptRemaining() throws IOException {
+        BencodeParser parser = BencodeParser.of("d3:fooi13e3:barl4:testee".getBytes());
+        parser.next();
+        parser.next();
+        parser.skipValue();
+        Assertions.assertEquals(BencodeParser.Event.KEY, parser.next());
+        TreeHandler handler = new TreeHandler();
+        handler.onDictStart();
+        handler.onKey(new byte[]{'b', 'a', 'r'}, 0, 3);
+        parser.accept(handler);
+        Assertions.assertFalse(parser.hasNext());
+        Assertions.assertEquals(BDict.of(BString.of("bar"), BList.of(BString.of("test"))), handler.result);
+    }
+
+    @Test
+    public void testAcceptBuildsTree() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get(TORRENT));
+        BNode<?> expected = NodeFactory.decode(data);
+
+        TreeHandler handler = new TreeHandler();
+        BencodeParser.of(data).accept(handler);
+        Assertions.assertEquals(expected, handler.result);
+
+        handler = new TreeHandler();
+        BencodeParser.of(new ByteArrayInputStream(data)).accept(handler);
+        Assertions.assertEquals(expected, handler.result);
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        handler = new TreeHandler();
+        BencodeParser.of(direct).accept(handler);
+        Assertions.assertEquals(expected, handler.result);
+    }
+
+    @Test
+    public void testAcceptBigInteger() throws IOException {
+        byte[] data = "li9223372036854775807ei-9223372036854775808ei9223372036854775808ee".getBytes();
+        Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of(data).accept(new TreeHandler()));
+
+        TreeHandler handler = new TreeHandler() {
+            @Override
+            public void onInteger(BigInteger value) {
+                add(BInteger.of(value));
+            }
+        };
+        BencodeParser.of(data).accept(handler);
+        Assertions.assertEquals(NodeFactory.decode(data), handler.result);
+    }
+
+    @Test
+    public void testDeepNesting() throws IOException {
+        int depth = 100_000;
+        byte[] data = ("l" + repeat("d1:a", depth) + "i7e" + repeat("e", depth) + "e").getBytes();
+        NodeFactoryTest.assertDepth(depth + 1, BencodeParser.of(data).readValue());
+        NodeFactoryTest.assertDepth(depth + 1, BencodeParser.of(new ByteArrayInputStream(data)).readValue());
+
+        BencodeParser parser = BencodeParser.of(data);
+        parser.skipValue();
+        Assertions.assertFalse(parser.hasNext());
+
+        BencodeException e = Assertions.assertThrows(BencodeException.class,
+            () -> BencodeParser.of(data, DecoderConfig.DEFAULT.withMaxDepth(depth)).skipValue());
+        Assertions.assertEquals("Nesting depth exceeds the limit of " + depth, e.getMessage());
+    }
+
+    @Test
+    public void testConfigLimits() {
+        byte[] data = "d3:fooli1ei2ei3ee3:bar5:helloe".getBytes();
+        assertParseFails(data, DecoderConfig.DEFAULT.withMaxDepth(1), "Nesting depth exceeds the limit of 1");
+        assertParseFails(data, DecoderConfig.DEFAULT.withMaxCollectionSize(2), "Size of dictionary or list exceeds the limit of 2");
+        assertParseFails(data, DecoderConfig.DEFAULT.withMaxNodes(7), "Count of nodes exceeds the limit of 7");
+        assertParseFails(data, DecoderConfig.DEFAULT.withMaxBytes(data.length - 1), "Encoded size exceeds the limit of " + (data.length - 1) + " bytes");
+        assertParseFails(data, DecoderConfig.DEFAULT.withMaxStringLength(4), "Denied attempt to read 5 bytes.");
+        assertParseFails(data, DecoderConfig.STRICT, "Dictionary key 'bar' is out of order, it follows 'foo'");
+        Assertions.assertThrows(BencodeException.class,
+            () -> BencodeParser.of(data, DecoderConfig.STRICT).accept(new TreeHandler()));
+        Assertions.assertThrows(NullPointerException.class, () -> BencodeParser.of(data, null));
+    }
+
+    @Test
+    public void testConfigLimitsValid() throws IOException {
+        byte[] data = "d3:barli1ei2ei3ee3:foo5:helloe".getBytes();
+        DecoderConfig config = DecoderConfig.STRICT.withMaxDepth(2).withMaxCollectionSize(3).withMaxNodes(8)
+            .withMaxBytes(data.length).withMaxStringLength(5);
+        Assertions.assertEquals(NodeFactory.decode(data), BencodeParser.of(data, config).readValue());
+
+        TreeHandler handler = new TreeHandler();
+        BencodeParser.of(new ByteArrayInputStream(data), config).accept(handler);
+        Assertions.assertEquals(NodeFactory.decode(data), handler.result);
+
+        // longer strings can still be skipped
+        BencodeParser parser = BencodeParser.of(ByteBuffer.wrap(data), DecoderConfig.DEFAULT.withMaxStringLength(2));
+        parser.skipValue();
+        Assertions.assertFalse(parser.hasNext());
+    }
+
+    private static void assertParseFails(byte[] data, DecoderConfig config, String message) {
+        BencodeException e = Assertions.assertThrows(BencodeException.class, () -> BencodeParser.of(data, config).readValue());
+        Assertions.assertEquals(message, e.getMessage());
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder sb = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+
+    private static BNode<?> extractInfoName(BencodeParser parser) throws IOException {
+        Assertions.assertEquals(BencodeParser.Event.START_DICT, parser.next());
+        while (parser.next() == BencodeParser.Event.KEY) {
+            if (parser.getString().equals(BString.of("info"))) {
+                Assertions.assertEquals(BencodeParser.Event.START_DICT, parser.next());
+                while (parser.next() == BencodeParser.Event.KEY) {
+                    if (parser.getString().equals(BString.of("name"))) {
+                        return parser.readValue();
+                    }
+                    parser.skipValue();
+                }
+            } else {
+                parser.skipValue();
+            }
+        }
+        return null;
+    }
+
+    private static class TreeHandler implements BencodeHandler {
+        private final Deque<Object> stack = new ArrayDeque<>();
+        private BString key;
+        private BNode<?> result;
+
+        @Override
+        public void onDictStart() {
+            stack.push(new Object[]{key, new LinkedHashMap<BString, BNode<?>>()});
+        }
+
+        @Override
+        public void onKey(byte[] data, int offset, int length) {
+            key = BString.of(Arrays.copyOfRange(data, offset, offset + length));
+        }
+
+        @Override
+        public void onString(byte[] data, int offset, int length) {
+            add(BString.of(Arrays.copyOfRange(data, offset, offset + length)));
+        }
+
+        @Override
+        public void onInteger(long value) {
+            add(BInteger.of(value));
+        }
+
+        @Override
+        public void onListStart() {
+            stack.push(new Object[]{key, new ArrayList<BNode<?>>()});
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onEnd() {
+            Object[] frame = (Object[]) stack.pop();
+            key = (BString) frame[0];
+            if (frame[1] instanceof Map) {
+                add(BDict.of((Map<BString, BNode<?>>) frame[1]));
+            } else {
+                add(BList.of((List<BNode<?>>) frame[1]));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void add(BNode<?> node) {
+            if (stack.isEmpty()) {
+                result = node;
+                return;
+            }
+            Object container = ((Object[]) stack.peek())[1];
+            if (container instanceof Map) {
+                ((Map<BString, BNode<?>>) container).put(key, node);
+            } else {
+                ((List<BNode<?>>) container).add(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package eu.fraho.libs.beencode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BencodeReaderTest {
+    @Test
+    public void testRead() throws IOException {
+        byte[] torrent = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            bos.write(torrent);
+            bos.write("i42e".getBytes());
+        }
+        BNode<?> expected = NodeFactory.decode(torrent);
+        for (int bufferSize : new int[]{1, 100, BencodeReader.DEFAULT_BUFFER_SIZE}) {
+            try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream(bos.toByteArray()), DecoderConfig.STRICT, bufferSize)) {
+                for (int i = 0; i < 3; i++) {
+                    Assertions.assertEquals(expected, reader.read());
+                    Assertions.assertEquals(BInteger.of(42), reader.read());
+                }
+                Assertions.assertNull(reader.read());
+                Assertions.assertNull(reader.read());
+            }
+        }
+    }
+
+    @Test
+    public void testReadEmpty() throws IOException {
+        try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream(new byte[0]))) {
+            Assertions.assertNull(reader.read());
+            Assertions.assertFalse(reader.iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void testReadPremature() throws IOException {
+        try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream("i1eli2e".getBytes()))) {
+            Assertions.assertEquals(BInteger.of(1), reader.read());
+            BencodeException e = Assertions.assertThrows(BencodeException.class, reader::read);
+            Assertions.assertEquals("Premature end of stream, expected more data.", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testReadInvalid() throws IOException {
+        try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream("i1ex".getBytes()))) {
+            Assertions.assertEquals(BInteger.of(1), reader.read());
+            Assertions.assertThrows(BencodeException.class, reader::read);
+        }
+    }
+
+    @Test
+    public void testClosed() throws IOException {
+        AtomicInteger closed = new AtomicInteger();
+        BencodeReader reader = new BencodeReader(new ByteArrayInputStream("i1e".getBytes()) {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        });
+        reader.close();
+        reader.close();
+        Assertions.assertEquals(1, closed.get());
+        Assertions.assertThrows(IOException.class, reader::read);
+        Assertions.assertThrows(UncheckedIOException.class, () -> reader.iterator().hasNext());
+    }
+
+    @Test
+    public void testIterator() throws IOException {
+        try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream("i1e1:ale".getBytes()))) {
+            Iterator<BNode<?>> iterator = reader.iterator();
+            Assertions.assertTrue(iterator.hasNext());
+            Assertions.assertTrue(iterator.hasNext());
+            Assertions.assertEquals(BInteger.of(1), iterator.next());
+            Assertions.assertEquals(BString.of("a"), iterator.next());
+            Assertions.assertEquals(BList.of(), iterator.next());
+            Assertions.assertFalse(iterator.hasNext());
+            Assertions.assertThrows(NoSuchElementException.class, iterator::next);
+        }
+    }
+
+    @Test
+    public void testStream() {
+        AtomicInteger closed = new AtomicInteger();
+        InputStream is = new ByteArrayInputStream(sequence(1000)) {
+            @Override
+            public void close() {
+                closed.incrementAndGet();
+            }
+        };
+        try (Stream<BNode<?>> stream = new BencodeReader(is, DecoderConfig.DEFAULT, 7).stream()) {
+            Assertions.assertEquals(499_500L, stream.mapToLong(n -> ((BInteger) n).getValue().longValue()).sum());
+        }
+        Assertions.assertEquals(1, closed.get());
+    }
+
+    @Test
+    public void testStreamPrefetch() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream(sequence(10_000)), DecoderConfig.DEFAULT, 64)) {
+            List<BNode<?>> result = reader.stream(16, executor).collect(Collectors.toList());
+            Assertions.assertEquals(10_000, result.size());
+            for (int i = 0; i < result.size(); i++) {
+                Assertions.assertEquals(BInteger.of(i), result.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamPrefetchBounded() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountingInputStream is = new CountingInputStream(sequence(10_000));
+        try (Stream<BNode<?>> stream = new BencodeReader(is, DecoderConfig.DEFAULT, 16).stream(4, executor)) {
+            Iterator<BNode<?>> iterator = stream.iterator();
+            Assertions.assertEquals(BInteger.of(0), iterator.next());
+            // give the prefetching task time to run ahead as far as it may
+            Thread.sleep(200);
+            // queued elements, one waiting to be queued and the rest of the buffer, each element at most 6 bytes
+            Assertions.assertTrue(is.count < 16 + 6 * 16, "read " + is.count + " bytes");
+            Assertions.assertEquals(BInteger.of(1), iterator.next());
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testStreamPrefetchInvalid() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (BencodeReader reader = new BencodeReader(new ByteArrayInputStream("i1ei2ex".getBytes()))) {
+            Iterator<BNode<?>> iterator = reader.stream(2, executor).iterator();
+            Assertions.assertEquals(BInteger.of(1), iterator.next());
+            Assertions.assertEquals(BInteger.of(2), iterator.next());
+            Assertions.assertThrows(BencodeException.class, iterator::hasNext);
+            Assertions.assertThrows(IllegalArgumentException.class, () -> reader.stream(0, executor));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamPrefetchError() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        InputStream is = new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                throw new LinkageError("broken");
+            }
+        };
+        try (BencodeReader reader = new BencodeReader(is)) {
+            Iterator<BNode<?>> iterator = reader.stream(2, executor).iterator();
+            LinkageError e = Assertions.assertThrows(LinkageError.class, iterator::hasNext);
+            Assertions.assertEquals("broken", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamPrefetchInterrupted() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        Executor executor = command -> {
+            Thread thread = new Thread(command);
+            threads.add(thread);
+            thread.start();
+        };
+        try (Stream<BNode<?>> stream = new BencodeReader(new ByteArrayInputStream(sequence(10_000))).stream(1, executor)) {
+            Iterator<BNode<?>> iterator = stream.iterator();
+            Assertions.assertEquals(BInteger.of(0), iterator.next());
+            threads.get(0).interrupt();
+            threads.get(0).join(5000);
+            Assertions.assertFalse(threads.get(0).isAlive());
+            UncheckedIOException e = Assertions.assertThrows(UncheckedIOException.class, () -> {
+                while (iterator.hasNext()) {
+                    iterator.next();
+                }
+            });
+            Assertions.assertEquals("Prefetching stopped before the end of the stream", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testInvalidBufferSize() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+            () -> new BencodeReader(new ByteArrayInputStream(new byte[0]), DecoderConfig.DEFAULT, 0));
+    }
+
+    private static byte[] sequence(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append('i').append(i).append('e');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final class CountingInputStream extends ByteArrayInputStream {
+        private volatile int count;
+
+        private CountingInputStream(byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            int read = super.read(b, off, len);
+            count += Math.max(0, read);
+            return read;
+        }
+    }
+}
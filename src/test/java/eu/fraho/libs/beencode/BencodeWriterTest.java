@@ -0,0 +1,147 @@
+package eu.fraho.libs.beencode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class BencodeWriterTest {
+    private static final Path TORRENT = Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat");
+
+    @Test
+    public void testWriteStream() throws IOException {
+        byte[] data = Files.readAllBytes(TORRENT);
+        BNode<?> node = NodeFactory.decode(data);
+        for (int bufferSize : new int[]{1, 7, 4096, BencodeWriter.DEFAULT_BUFFER_SIZE}) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (BencodeWriter writer = new BencodeWriter(bos, bufferSize)) {
+                writer.write(node);
+                writer.write(BInteger.of(42));
+            }
+            Assertions.assertArrayEquals(concat(data, "i42e".getBytes()), bos.toByteArray(), "bufferSize=" + bufferSize);
+        }
+    }
+
+    @Test
+    public void testWriteBatched() throws IOException {
+        BNode<?> node = NodeFactory.decode(Files.readAllBytes(TORRENT));
+        CallCountingOutputStream unbuffered = new CallCountingOutputStream();
+        node.write(unbuffered);
+        CallCountingOutputStream buffered = new CallCountingOutputStream();
+        try (BencodeWriter writer = new BencodeWriter(buffered, 4096)) {
+            writer.write(node);
+        }
+        Assertions.assertEquals(unbuffered.bytes, buffered.bytes);
+        // full blocks, the pieces are larger than the buffer and written directly
+        Assertions.assertTrue(buffered.calls <= unbuffered.bytes / 4096 + 2, "calls=" + buffered.calls);
+        Assertions.assertTrue(unbuffered.calls > buffered.calls, "unbuffered=" + unbuffered.calls + ", buffered=" + buffered.calls);
+        Assertions.assertTrue(buffered.closed);
+    }
+
+    @Test
+    public void testWriteFlush() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BencodeWriter writer = new BencodeWriter(bos);
+        writer.write(BString.of("foo"));
+        Assertions.assertEquals(0, bos.size());
+        writer.flush();
+        Assertions.assertArrayEquals("3:foo".getBytes(), bos.toByteArray());
+    }
+
+    @Test
+    public void testWriteChannel() throws IOException {
+        byte[] data = Files.readAllBytes(TORRENT);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BencodeWriter writer = new BencodeWriter(Channels.newChannel(bos), 1024)) {
+            writer.write(NodeFactory.decode(data));
+        }
+        Assertions.assertArrayEquals(data, bos.toByteArray());
+    }
+
+    @Test
+    public void testWriteDirectBuffer() throws IOException {
+        byte[] data = Files.readAllBytes(TORRENT);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        BNode<?> node = NodeFactory.decodeLazy(direct);
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BencodeWriter writer = new BencodeWriter(bos, 1024)) {
+            writer.write(node);
+        }
+        Assertions.assertArrayEquals(data, bos.toByteArray());
+
+        Path file = Files.createTempFile("beencode-writer", ".dat");
+        try {
+            try (BencodeWriter writer = new BencodeWriter(FileChannel.open(file, StandardOpenOption.WRITE), 1024)) {
+                writer.write(node);
+            }
+            Assertions.assertArrayEquals(data, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testWriteCanonical() throws IOException {
+        BDict dict = BDict.builder().put("b", BInteger.of(1)).put("a", BInteger.of(2)).build();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BencodeWriter writer = new BencodeWriter(bos)) {
+            writer.writeCanonical(dict);
+        }
+        Assertions.assertArrayEquals(NodeFactory.encodeCanonical(dict), bos.toByteArray());
+    }
+
+    @Test
+    public void testClosed() throws IOException {
+        BencodeWriter writer = new BencodeWriter(new ByteArrayOutputStream());
+        writer.close();
+        writer.close();
+        Assertions.assertThrows(IOException.class, () -> writer.write(BInteger.of(1)));
+        Assertions.assertThrows(IOException.class, writer::flush);
+    }
+
+    @Test
+    public void testInvalidBufferSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BencodeWriter(new ByteArrayOutputStream(), 0));
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static final class CallCountingOutputStream extends OutputStream {
+        private int calls;
+        private long bytes;
+        private boolean closed;
+
+        @Override
+        public void write(int b) {
+            calls++;
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            calls++;
+            bytes += len;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
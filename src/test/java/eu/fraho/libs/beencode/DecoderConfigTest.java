@@ -0,0 +1,52 @@
+package eu.fraho.libs.beencode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DecoderConfigTest {
+    @Test
+    public void testDefaults() {
+        Assertions.assertFalse(DecoderConfig.DEFAULT.isStrict());
+        Assertions.assertTrue(DecoderConfig.STRICT.isStrict());
+    }
+
+    @Test
+    public void testWithStrict() {
+        DecoderConfig strict = DecoderConfig.DEFAULT.withStrict(true);
+        Assertions.assertTrue(strict.isStrict());
+        Assertions.assertFalse(DecoderConfig.DEFAULT.isStrict());
+        Assertions.assertFalse(strict.withStrict(false).isStrict());
+        Assertions.assertTrue(strict.toString().startsWith("DecoderConfig{strict=true, maxDepth="));
+    }
+
+    @Test
+    public void testWithLimits() {
+        DecoderConfig config = DecoderConfig.STRICT
+            .withMaxDepth(1)
+            .withMaxBytes(2)
+            .withMaxNodes(3)
+            .withMaxCollectionSize(4)
+            .withMaxStringLength(5);
+        Assertions.assertTrue(config.isStrict());
+        Assertions.assertEquals(1, config.getMaxDepth());
+        Assertions.assertEquals(2, config.getMaxBytes());
+        Assertions.assertEquals(3, config.getMaxNodes());
+        Assertions.assertEquals(4, config.getMaxCollectionSize());
+        Assertions.assertEquals(5, config.getMaxStringLength());
+        Assertions.assertEquals(5, config.withStrict(false).getMaxStringLength());
+        Assertions.assertEquals("DecoderConfig{strict=true, maxDepth=1, maxBytes=2, maxNodes=3,"
+            + " maxCollectionSize=4, maxStringLength=5}", config.toString());
+
+        Assertions.assertEquals(Integer.MAX_VALUE, DecoderConfig.DEFAULT.getMaxDepth());
+        Assertions.assertEquals(BString.DEFAULT_MAX_READ_LEN, DecoderConfig.DEFAULT.getMaxStringLength());
+    }
+
+    @Test
+    public void testWithLimitsNegative() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DecoderConfig.DEFAULT.withMaxDepth(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DecoderConfig.DEFAULT.withMaxBytes(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DecoderConfig.DEFAULT.withMaxNodes(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DecoderConfig.DEFAULT.withMaxCollectionSize(-1));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> DecoderConfig.DEFAULT.withMaxStringLength(-1));
+    }
+}
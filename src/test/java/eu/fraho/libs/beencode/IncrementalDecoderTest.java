@@ -0,0 +1,208 @@
+package eu.fraho.libs.beencode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IncrementalDecoderTest {
+    @Test
+    public void testFeedByteByByte() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        for (int i = 0; i < data.length - 1; i++) {
+            Assertions.assertEquals(IncrementalDecoder.Status.NEEDS_MORE_INPUT, decoder.feed(ByteBuffer.wrap(data, i, 1)));
+            Assertions.assertTrue(decoder.isInProgress());
+        }
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(ByteBuffer.wrap(data, data.length - 1, 1)));
+        Assertions.assertFalse(decoder.isInProgress());
+        Assertions.assertEquals(NodeFactory.decode(data), decoder.takeResult());
+    }
+
+    @Test
+    public void testFeedChunks() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        BNode<?> expected = NodeFactory.decode(data);
+        Random random = new Random(42);
+        IncrementalDecoder decoder = new IncrementalDecoder(DecoderConfig.STRICT);
+        for (int round = 0; round < 10; round++) {
+            int position = 0;
+            IncrementalDecoder.Status status = IncrementalDecoder.Status.NEEDS_MORE_INPUT;
+            while (position < data.length) {
+                ByteBuffer chunk = ByteBuffer.wrap(data, position, Math.min(data.length - position, 1 + random.nextInt(4096)));
+                status = decoder.feed(chunk);
+                Assertions.assertFalse(chunk.hasRemaining());
+                position = chunk.position();
+            }
+            Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, status);
+            Assertions.assertEquals(expected, decoder.takeResult());
+        }
+    }
+
+    @Test
+    public void testFeedLargeString() {
+        byte[] content = new byte[100_000];
+        new Random(42).nextBytes(content);
+        ByteBuffer input = ByteBuffer.allocate(content.length + 7);
+        input.put("100000:".getBytes(StandardCharsets.US_ASCII));
+        input.put(content);
+        input.flip();
+        Random random = new Random(42);
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        IncrementalDecoder.Status status = IncrementalDecoder.Status.NEEDS_MORE_INPUT;
+        while (input.hasRemaining()) {
+            ByteBuffer chunk = input.duplicate();
+            chunk.limit(Math.min(input.limit(), input.position() + 1 + random.nextInt(5000)));
+            status = decoder.feed(chunk);
+            input.position(chunk.position());
+        }
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, status);
+        Assertions.assertEquals(BString.of(content), decoder.takeResult());
+    }
+
+    @Test
+    public void testFeedAnnouncedLengthOnly() {
+        // 100 connections announcing 30 MB each would exhaust the heap if the content was allocated up front
+        List<IncrementalDecoder> decoders = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            IncrementalDecoder decoder = new IncrementalDecoder();
+            ByteBuffer input = ByteBuffer.wrap("30000000:abc".getBytes(StandardCharsets.US_ASCII));
+            Assertions.assertEquals(IncrementalDecoder.Status.NEEDS_MORE_INPUT, decoder.feed(input));
+            Assertions.assertFalse(input.hasRemaining());
+            decoders.add(decoder);
+        }
+        Assertions.assertTrue(decoders.get(99).isInProgress());
+    }
+
+    @Test
+    public void testFeedBackToBack() {
+        ByteBuffer input = ByteBuffer.wrap("i42e0:d1:al1:bee4:spa".getBytes(StandardCharsets.US_ASCII));
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        List<BNode<?>> results = new ArrayList<>();
+        while (decoder.feed(input) == IncrementalDecoder.Status.COMPLETE) {
+            results.add(decoder.takeResult());
+        }
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(BInteger.of(42), results.get(0));
+        Assertions.assertEquals(BString.of(""), results.get(1));
+        Assertions.assertEquals(BDict.of(BString.of("a"), BList.of(BString.of("b"))), results.get(2));
+        Assertions.assertFalse(input.hasRemaining());
+        Assertions.assertTrue(decoder.isInProgress());
+
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(ByteBuffer.wrap("m".getBytes())));
+        Assertions.assertEquals(BString.of("spam"), decoder.takeResult());
+    }
+
+    @Test
+    public void testFeedKeepsCompleteResult() {
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        ByteBuffer input = ByteBuffer.wrap("i1ei2e".getBytes());
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(input));
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(input));
+        Assertions.assertEquals(3, input.position());
+        Assertions.assertEquals(BInteger.of(1), decoder.takeResult());
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(input));
+        Assertions.assertEquals(BInteger.of(2), decoder.takeResult());
+        Assertions.assertEquals(IncrementalDecoder.Status.NEEDS_MORE_INPUT, decoder.feed(input));
+        Assertions.assertFalse(decoder.isInProgress());
+    }
+
+    @Test
+    public void testTakeResultIncomplete() {
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        Assertions.assertThrows(IllegalStateException.class, decoder::takeResult);
+        decoder.feed(ByteBuffer.wrap("li1e".getBytes()));
+        Assertions.assertThrows(IllegalStateException.class, decoder::takeResult);
+    }
+
+    @Test
+    public void testInvalid() {
+        assertInvalid("x", "No parser found for prefix '120'");
+        assertInvalid("li1ex", "No parser found for prefix '120'");
+        assertInvalid("di1ei2ee", "Expected a dictionary key");
+        assertInvalid("i01e", null);
+        assertInvalid("i123456789012345678901e", "Invalid data, did not find suffix within 21 bytes");
+        assertInvalid("03:foo", "Leading zeros are not allowed.");
+        assertInvalid("3x:foo", "Unexpected data, expected an digit");
+        assertInvalid("d1:ae", null);
+    }
+
+    @Test
+    public void testInvalidRequiresReset() {
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        Assertions.assertThrows(BencodeException.class, () -> decoder.feed(ByteBuffer.wrap("lxe".getBytes())));
+        Assertions.assertThrows(IllegalStateException.class, () -> decoder.feed(ByteBuffer.wrap("i1e".getBytes())));
+        decoder.reset();
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(ByteBuffer.wrap("i1e".getBytes())));
+        Assertions.assertEquals(BInteger.of(1), decoder.takeResult());
+    }
+
+    @Test
+    public void testResetPartial() {
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        decoder.feed(ByteBuffer.wrap("d3:foo5:ab".getBytes()));
+        Assertions.assertTrue(decoder.isInProgress());
+        decoder.reset();
+        Assertions.assertFalse(decoder.isInProgress());
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(ByteBuffer.wrap("le".getBytes())));
+        Assertions.assertEquals(BList.of(), decoder.takeResult());
+    }
+
+    @Test
+    public void testConfig() {
+        byte[] unsorted = "d1:bi1e1:ai2ee".getBytes();
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, new IncrementalDecoder().feed(ByteBuffer.wrap(unsorted)));
+        Assertions.assertThrows(BencodeException.class, () -> new IncrementalDecoder(DecoderConfig.STRICT).feed(ByteBuffer.wrap(unsorted)));
+
+        // the limits apply to each element on its own
+        IncrementalDecoder decoder = new IncrementalDecoder(DecoderConfig.DEFAULT.withMaxDepth(2).withMaxNodes(3));
+        ByteBuffer input = ByteBuffer.wrap("lli1eeelli1eeelllee".getBytes());
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(input));
+            Assertions.assertEquals(NodeFactory.decode("lli1eee".getBytes()), decoder.takeResult());
+        }
+        BencodeException e = Assertions.assertThrows(BencodeException.class, () -> decoder.feed(input));
+        Assertions.assertEquals("Nesting depth exceeds the limit of 2", e.getMessage());
+
+        IncrementalDecoder strings = new IncrementalDecoder(DecoderConfig.DEFAULT.withMaxStringLength(4));
+        e = Assertions.assertThrows(BencodeException.class, () -> strings.feed(ByteBuffer.wrap("5:".getBytes())));
+        Assertions.assertEquals("Denied attempt to read 5 bytes.", e.getMessage());
+    }
+
+    @Test
+    public void testDeepNesting() {
+        int depth = 100_000;
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        ByteBuffer open = ByteBuffer.allocate(depth);
+        while (open.hasRemaining()) {
+            open.put((byte) 'l');
+        }
+        open.flip();
+        Assertions.assertEquals(IncrementalDecoder.Status.NEEDS_MORE_INPUT, decoder.feed(open));
+        ByteBuffer close = ByteBuffer.allocate(depth);
+        while (close.hasRemaining()) {
+            close.put((byte) 'e');
+        }
+        close.flip();
+        Assertions.assertEquals(IncrementalDecoder.Status.COMPLETE, decoder.feed(close));
+        Assertions.assertTrue(decoder.takeResult() instanceof BList);
+    }
+
+    private static void assertInvalid(String data, String messagePrefix) {
+        IncrementalDecoder decoder = new IncrementalDecoder();
+        BencodeException e = Assertions.assertThrows(BencodeException.class,
+            () -> decoder.feed(ByteBuffer.wrap(data.getBytes(StandardCharsets.US_ASCII))), data);
+        if (messagePrefix != null) {
+            Assertions.assertTrue(e.getMessage().startsWith(messagePrefix), e.getMessage());
+        }
+        // the same data fails with the other decoders too
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(data.getBytes(StandardCharsets.US_ASCII)), data);
+    }
+}
@@ -5,13 +5,35 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 
 public class NodeFactoryTest {
     @Test
@@ -71,6 +93,208 @@ public class NodeFactoryTest {
         Assertions.assertEquals(BInteger.of(13), NodeFactory.decode("i13e".getBytes()));
     }
 
+    @Test
+    public void testDecodeByteArraySlice() {
+        byte[] data = "XXl3:fooi-42ee4:test".getBytes();
+        Assertions.assertEquals(BList.of(BString.of("foo"), BInteger.of(-42)), NodeFactory.decode(data, 2, 12));
+        Assertions.assertEquals(BString.of("test"), NodeFactory.decode(data, 14, 6));
+    }
+
+    @Test
+    public void testDecodeByteArraySliceTruncated() {
+        byte[] data = "l3:fooi-42ee".getBytes();
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(data, 0, 11));
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(data, 0, 5));
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(data, 0, 0));
+    }
+
+    @Test
+    public void testDecodeByteArraySliceOutOfBounds() {
+        byte[] data = "i13e".getBytes();
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> NodeFactory.decode(data, 2, 3));
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> NodeFactory.decode(data, -1, 2));
+    }
+
+    @Test
+    public void testDecodeByteArrayLargeInteger() {
+        Assertions.assertEquals(BInteger.of(new BigInteger("99999999999999999999")), NodeFactory.decode("i99999999999999999999e".getBytes()));
+        Assertions.assertEquals(BInteger.of(Long.MIN_VALUE), NodeFactory.decode(("i" + Long.MIN_VALUE + "e").getBytes()));
+    }
+
+    @Test
+    public void testDecodeShared() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        BNode<?> shared = NodeFactory.decodeShared(data, 0, data.length);
+        Assertions.assertArrayEquals(data, NodeFactory.encode(shared));
+        Assertions.assertEquals(NodeFactory.decode(data), shared);
+    }
+
+    @Test
+    public void testDecodeLazy() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        BDict lazy = (BDict) NodeFactory.decodeLazy(data);
+        Assertions.assertArrayEquals(data, NodeFactory.encode(lazy));
+
+        BDict expected = (BDict) NodeFactory.decode(data);
+        BDict info = lazy.get("info");
+        Assertions.assertEquals(expected.<BDict>get("info").get("name"), info.get("name"));
+        Assertions.assertArrayEquals(NodeFactory.encode(expected.get("info")), NodeFactory.encode(info));
+        Assertions.assertEquals(expected, lazy);
+        Assertions.assertArrayEquals(data, NodeFactory.encode(lazy));
+    }
+
+    @Test
+    public void testDecodeLazyNested() {
+        byte[] data = "XXd3:food3:barl4:testi5eee3:numi42ee".getBytes();
+        BDict lazy = (BDict) NodeFactory.decodeLazy(data, 2, data.length - 2);
+        Assertions.assertEquals(BInteger.of(42), lazy.get("num"));
+        BDict foo = lazy.get("foo");
+        BList bar = foo.get("bar");
+        Assertions.assertEquals(2, bar.size());
+        Assertions.assertEquals(BString.of("test"), bar.get(0));
+        Assertions.assertArrayEquals("l4:testi5ee".getBytes(), NodeFactory.encode(bar));
+        Assertions.assertEquals(NodeFactory.decode(data, 2, data.length - 2), lazy);
+    }
+
+    @Test
+    public void testDecodeLazyInvalid() {
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decodeLazy("d3:fooli01eee".getBytes()));
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decodeLazy("d3:fooi1ei5ei2ee".getBytes()));
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decodeLazy("l5:fooe".getBytes()));
+        Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decodeLazy("ll".getBytes()));
+    }
+
+    @Test
+    public void testDecodeLazyByteBuffer() {
+        byte[] data = "XXl3:fooli-42eee4:test".getBytes();
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.wrap(data), ByteBuffer.wrap(data).asReadOnlyBuffer(), toDirect(data))) {
+            buffer.position(2);
+            BNode<?> lazy = NodeFactory.decodeLazy(buffer);
+            Assertions.assertEquals(16, buffer.position());
+            Assertions.assertArrayEquals("l3:fooli-42eee".getBytes(), NodeFactory.encode(lazy));
+            Assertions.assertEquals(BList.of(BString.of("foo"), BList.of(BInteger.of(-42))), lazy);
+        }
+    }
+
+    @Test
+    public void testDecodeLazySerialize() throws IOException, ClassNotFoundException {
+        BNode<?> lazy = NodeFactory.decodeLazy("d3:fool4:testee".getBytes());
+        byte[] written;
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+                oos.writeObject(lazy);
+            }
+            written = bos.toByteArray();
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(written))) {
+            Object read = ois.readObject();
+            Assertions.assertEquals(BDict.of(BString.of("foo"), BList.of(BString.of("test"))), read);
+            Assertions.assertArrayEquals("d3:fool4:testee".getBytes(), NodeFactory.encode((BNode<?>) read));
+        }
+    }
+
+    @Test
+    public void testDecodeByteBuffer() {
+        byte[] data = "XXl3:fooi-42ee4:test".getBytes();
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.wrap(data), ByteBuffer.wrap(data).asReadOnlyBuffer(), toDirect(data))) {
+            buffer.position(2);
+            Assertions.assertEquals(BList.of(BString.of("foo"), BInteger.of(-42)), NodeFactory.decode(buffer));
+            Assertions.assertEquals(14, buffer.position());
+            Assertions.assertEquals(Optional.of(BString.of("test")), NodeFactory.decode(buffer, BString.class));
+            Assertions.assertEquals(20, buffer.position());
+        }
+    }
+
+    @Test
+    public void testDecodeByteBufferSliced() {
+        ByteBuffer buffer = ByteBuffer.wrap("XXi13ei42e".getBytes(), 2, 8).slice();
+        Assertions.assertEquals(BInteger.of(13), NodeFactory.decode(buffer));
+        Assertions.assertEquals(BInteger.of(42), NodeFactory.decode(buffer));
+        Assertions.assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    public void testDecodeByteBufferIncomplete() {
+        byte[] data = "l3:fooi-42e".getBytes();
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.wrap(data), toDirect(data))) {
+            Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(buffer));
+            Assertions.assertEquals(0, buffer.position());
+        }
+    }
+
+    @Test
+    public void testEncodeNumbers() throws IOException {
+        BList list = BList.of(BString.of(""), BString.of("123456789"), BString.of("1234567890"),
+            BInteger.of(0), BInteger.of(-7), BInteger.of(Long.MIN_VALUE), BInteger.of(Long.MAX_VALUE));
+        byte[] expected = ("l0:9:12345678910:1234567890i0ei-7ei" + Long.MIN_VALUE + "ei" + Long.MAX_VALUE + "ee").getBytes();
+        Assertions.assertArrayEquals(expected, NodeFactory.encode(list));
+
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length);
+        NodeFactory.encode(list, buffer);
+        Assertions.assertArrayEquals(expected, buffer.array());
+
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            NodeFactory.encode(list, bos);
+            Assertions.assertArrayEquals(expected, bos.toByteArray());
+        }
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            list.write(bos);
+            Assertions.assertArrayEquals(expected, bos.toByteArray());
+        }
+    }
+
+    @Test
+    public void testEncodeByteBuffer() {
+        BList node = BList.of(BString.of("foo"), BInteger.of(-42));
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(32), ByteBuffer.allocateDirect(32))) {
+            buffer.put((byte) 'X');
+            NodeFactory.encode(node, buffer);
+            Assertions.assertEquals(13, buffer.position());
+            buffer.flip();
+            byte[] written = new byte[buffer.remaining()];
+            buffer.get(written);
+            Assertions.assertArrayEquals("Xl3:fooi-42ee".getBytes(), written);
+        }
+    }
+
+    @Test
+    public void testEncodeByteBufferOverflow() {
+        BList node = BList.of(BString.of("foo"), BInteger.of(-42));
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(8), ByteBuffer.allocateDirect(8))) {
+            buffer.put((byte) 'X');
+            Assertions.assertThrows(BufferOverflowException.class, () -> NodeFactory.encode(node, buffer));
+            Assertions.assertEquals(1, buffer.position());
+        }
+    }
+
+    @Test
+    public void testDecodePath() throws IOException {
+        Path path = Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat");
+        byte[] data = Files.readAllBytes(path);
+        BNode<?> mapped = NodeFactory.decode(path);
+        Assertions.assertEquals(NodeFactory.decode(data), mapped);
+        Assertions.assertArrayEquals(data, NodeFactory.encode(mapped));
+    }
+
+    @Test
+    public void testDecodeFileChannel() throws IOException {
+        Path path = Files.createTempFile("beencode", ".dat");
+        try {
+            Files.write(path, "XXi13el3:fooe".getBytes());
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                channel.position(2);
+                Assertions.assertEquals(BInteger.of(13), NodeFactory.decode(channel));
+                Assertions.assertEquals(6, channel.position());
+                Assertions.assertEquals(BList.of(BString.of("foo")), NodeFactory.decode(channel));
+                Assertions.assertEquals(13, channel.position());
+                Assertions.assertThrows(BencodeException.class, () -> NodeFactory.decode(channel));
+                Assertions.assertEquals(13, channel.position());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
     @Test
     public void testDecodeWithWrongType() {
         Assertions.assertThrows(BencodeException.class, () -> {
@@ -104,6 +328,81 @@ public class NodeFactoryTest {
         Assertions.assertArrayEquals("i13e".getBytes(), NodeFactory.encode(BInteger.of(13)));
     }
 
+    @Test
+    public void testEncodedLength() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        BNode<?> node = NodeFactory.decode(data);
+        Assertions.assertEquals(data.length, node.encodedLength());
+        Assertions.assertEquals(data.length, node.encodedLength());
+        Assertions.assertEquals(data.length, NodeFactory.decodeLazy(data).encodedLength());
+        Assertions.assertEquals(data.length, NodeFactory.decodeShared(data, 0, data.length).encodedLength());
+        Assertions.assertArrayEquals(data, NodeFactory.encode(node));
+
+        for (String value : new String[]{"i0e", "i-1e", "i9e", "i10e", "i-10e", "i" + Long.MIN_VALUE + "e",
+            "i" + Long.MAX_VALUE + "e", "i-9223372036854775809e", "0:", "10:0123456789", "le", "de"}) {
+            Assertions.assertEquals(value.length(), NodeFactory.decode(value.getBytes()).encodedLength(), value);
+        }
+    }
+
+    @Test
+    public void testEncodeCached() throws IOException {
+        BList list = BList.of(BInteger.of(1), BString.of("bar"));
+        BDict dict = BDict.of(BString.of("foo"), list);
+        byte[] expected = "d3:fooli1e3:baree".getBytes();
+        // only kept on request
+        Assertions.assertArrayEquals(expected, NodeFactory.encode(dict));
+        Assertions.assertNull(dict.getEncoded());
+
+        Assertions.assertSame(dict, dict.cacheEncoded());
+        Assertions.assertSame(list, list.cacheEncoded());
+        byte[] cached = dict.getEncoded();
+        Assertions.assertArrayEquals(expected, cached);
+        Assertions.assertSame(cached, dict.cacheEncoded().getEncoded());
+        Assertions.assertArrayEquals("li1e3:bare".getBytes(), list.getEncoded());
+
+        byte[] first = NodeFactory.encode(dict);
+        Assertions.assertArrayEquals(expected, first);
+        Assertions.assertNotSame(cached, first);
+        first[0] = 'X';
+        byte[] second = NodeFactory.encode(dict);
+        Assertions.assertArrayEquals(expected, second);
+        Assertions.assertNotSame(first, second);
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            dict.write(bos);
+            Assertions.assertArrayEquals(expected, bos.toByteArray());
+        }
+    }
+
+    @Test
+    public void testHashCodeCached() {
+        BDict a = BDict.of(BString.of("foo"), BList.of(BInteger.of(1), BString.of("bar")));
+        BDict b = BDict.of(BString.of("foo"), BList.of(BInteger.of(1), BString.of("bar")));
+        BDict c = BDict.of(BString.of("foo"), BList.of(BInteger.of(2), BString.of("bar")));
+        Assertions.assertEquals(a.hashCode(), b.hashCode());
+        Assertions.assertEquals(a.hashCode(), a.hashCode());
+        Assertions.assertEquals(31 * (31 + BDict.class.hashCode()) + a.getValue().hashCode(), a.hashCode());
+        Assertions.assertEquals(a, b);
+        c.hashCode();
+        Assertions.assertNotEquals(a, c);
+    }
+
+    @Test
+    public void testEncodedLengthDefault() {
+        BNode<String> custom = new BNode<String>() {
+            @Override
+            public void write(OutputStream os) throws IOException {
+                os.write("4:test".getBytes());
+            }
+
+            @Override
+            public String getValue() {
+                return "test";
+            }
+        };
+        Assertions.assertEquals(6, custom.encodedLength());
+        Assertions.assertArrayEquals("l4:teste".getBytes(), NodeFactory.encode(BList.of(custom)));
+    }
+
     @Test
     public void testDecodeStreamWithTypeOk() throws IOException {
         try (InputStream is = new ByteArrayInputStream("i0e".getBytes())) {
@@ -121,6 +420,374 @@ public class NodeFactoryTest {
         }
     }
 
+    @Test
+    public void testEncodeSegments() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        BDict torrent = (BDict) NodeFactory.decode(data);
+        ByteBuffer[] segments = NodeFactory.encodeSegments(torrent);
+        Assertions.assertArrayEquals(data, concat(segments));
+
+        // the pieces are referenced, not copied
+        BString pieces = torrent.<BDict>get("info").get("pieces");
+        ByteBuffer content = Arrays.stream(segments)
+            .filter(s -> s.remaining() == pieces.length())
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+        Assertions.assertTrue(content.isReadOnly());
+        Assertions.assertEquals(ByteBuffer.wrap(pieces.getValue()), content);
+        Assertions.assertTrue(segments.length < 10, "segments=" + segments.length);
+
+        // the segments are not consumed by encoding
+        Assertions.assertArrayEquals(data, concat(NodeFactory.encodeSegments(torrent)));
+    }
+
+    @Test
+    public void testEncodeSegmentsSmall() {
+        BList list = BList.of(BString.of("foo"), BInteger.of(42), BDict.of(BString.of("a"), BString.of("b")));
+        ByteBuffer[] segments = NodeFactory.encodeSegments(list);
+        Assertions.assertEquals(1, segments.length);
+        Assertions.assertArrayEquals(NodeFactory.encode(list), concat(segments));
+    }
+
+    @Test
+    public void testEncodeSegmentsManyTokens() {
+        BList.Builder builder = BList.builder();
+        for (int i = 0; i < 10_000; i++) {
+            builder.add(BInteger.of(i));
+        }
+        BList list = builder.build();
+        Assertions.assertArrayEquals(NodeFactory.encode(list), concat(NodeFactory.encodeSegments(list)));
+    }
+
+    @Test
+    public void testEncodeSegmentsGathering() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        // lazy nodes of a direct buffer reference the buffer
+        ByteBuffer direct = toDirect(data);
+        ByteBuffer[] segments = NodeFactory.encodeSegments(NodeFactory.decodeLazy(direct));
+        Assertions.assertEquals(1, segments.length);
+        Assertions.assertTrue(segments[0].isDirect());
+
+        segments = NodeFactory.encodeSegments(NodeFactory.decode(data));
+        Path file = Files.createTempFile("beencode-segments", ".dat");
+        try {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                long remaining = data.length;
+                while (remaining > 0) {
+                    remaining -= channel.write(segments);
+                }
+            }
+            Assertions.assertArrayEquals(data, Files.readAllBytes(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static byte[] concat(ByteBuffer[] segments) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (ByteBuffer segment : segments) {
+            byte[] bytes = new byte[segment.remaining()];
+            segment.duplicate().get(bytes);
+            bos.write(bytes, 0, bytes.length);
+        }
+        return bos.toByteArray();
+    }
+
+    @Test
+    public void testEncodeCanonical() throws IOException {
+        BDict unsorted = BDict.builder()
+            .put("b", BList.of(BDict.builder().put("z", BInteger.of(1)).put("y", BInteger.of(2)).build()))
+            .put(BString.of(new byte[]{(byte) 0x80}), BInteger.of(3))
+            .put("a", BDict.of())
+            .build();
+        String expected = "d1:ade1:bld1:yi2e1:zi1eee1:\u0080i3ee";
+        byte[] canonical = NodeFactory.encodeCanonical(unsorted);
+        Assertions.assertEquals(expected, new String(canonical, StandardCharsets.ISO_8859_1));
+        Assertions.assertEquals(unsorted.encodedLength(), canonical.length);
+
+        try (ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
+            NodeFactory.encodeCanonical(unsorted, bos);
+            Assertions.assertArrayEquals(canonical, bos.toByteArray());
+        }
+        // the order of the node itself is unchanged
+        Assertions.assertEquals("d1:bld1:zi1e1:yi2eee1:\u0080i3e1:adee",
+            new String(NodeFactory.encode(unsorted), StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testEncodeCanonicalSorted() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        Assertions.assertArrayEquals(data, NodeFactory.encodeCanonical(NodeFactory.decode(data)));
+        Assertions.assertArrayEquals(data, NodeFactory.encodeCanonical(NodeFactory.decodeLazy(data)));
+    }
+
+    @Test
+    public void testEncodeCanonicalLazyUnsorted() {
+        byte[] data = "l1:xd1:bi1e1:ai2eee".getBytes(StandardCharsets.US_ASCII);
+        BNode<?> lazy = NodeFactory.decodeLazy(data);
+        Assertions.assertArrayEquals(data, NodeFactory.encode(lazy));
+        Assertions.assertEquals("l1:xd1:ai2e1:bi1eee",
+            new String(NodeFactory.encodeCanonical(lazy), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void testDecodeStrict() throws IOException {
+        byte[] sorted = "d1:ai1e2:aai2e1:bld1:xi3e1:yi4eeee".getBytes(StandardCharsets.US_ASCII);
+        BNode<?> expected = NodeFactory.decode(sorted);
+        Assertions.assertEquals(expected, NodeFactory.decode(sorted, DecoderConfig.STRICT));
+        Assertions.assertEquals(expected, NodeFactory.decode(ByteBuffer.wrap(sorted), DecoderConfig.STRICT));
+        Assertions.assertEquals(expected, NodeFactory.decode(toDirect(sorted), DecoderConfig.STRICT));
+        Assertions.assertEquals(expected, NodeFactory.decode(new ByteArrayInputStream(sorted), DecoderConfig.STRICT));
+    }
+
+    @Test
+    public void testDecodeStrictOutOfOrder() {
+        // the nested dictionary is out of order, which is only rejected in strict mode
+        byte[] data = "d1:ai1e1:bld1:yi3e1:xi4eeee".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertEquals(2, ((BDict) NodeFactory.decode(data)).size());
+        assertStrictFails(data, "Dictionary key 'x' is out of order, it follows 'y'");
+    }
+
+    @Test
+    public void testDecodeStrictDuplicate() {
+        byte[] data = "d1:ai1e1:ai2ee".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertEquals(BInteger.of(2), ((BDict) NodeFactory.decode(data)).get("a"));
+        assertStrictFails(data, "Duplicate dictionary key 'a'");
+    }
+
+    @Test
+    public void testDecodeStrictFailsFast() {
+        // the value after the key out of order is invalid, but never read
+        byte[] data = "d1:bi1e1:ax".getBytes(StandardCharsets.US_ASCII);
+        assertStrictFails(data, "Dictionary key 'a' is out of order, it follows 'b'");
+    }
+
+    @Test
+    public void testDecodeStrictRawBytes() {
+        byte[] data = "d1:zi1e1:\u0080i2ee".getBytes(StandardCharsets.ISO_8859_1);
+        Assertions.assertEquals(2, ((BDict) NodeFactory.decode(data, DecoderConfig.STRICT)).size());
+    }
+
+    private static void assertStrictFails(byte[] data, String message) {
+        assertDecodeFails(data, DecoderConfig.STRICT, message);
+    }
+
+    @Test
+    public void testDecodeLimitsDepth() {
+        byte[] data = "lllleeee".getBytes(StandardCharsets.US_ASCII);
+        assertDecodeSucceeds(data, DecoderConfig.DEFAULT.withMaxDepth(4));
+        assertDecodeFails(data, DecoderConfig.DEFAULT.withMaxDepth(3), "Nesting depth exceeds the limit of 3");
+    }
+
+    @Test
+    public void testDecodeLimitsBytes() throws IOException {
+        byte[] data = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        assertDecodeSucceeds(data, DecoderConfig.DEFAULT.withMaxBytes(data.length));
+        assertDecodeFails(data, DecoderConfig.DEFAULT.withMaxBytes(1000), "Denied attempt to read");
+        byte[] small = "li1ei22ee".getBytes(StandardCharsets.US_ASCII);
+        assertDecodeSucceeds(small, DecoderConfig.DEFAULT.withMaxBytes(small.length));
+        assertDecodeFails(small, DecoderConfig.DEFAULT.withMaxBytes(small.length - 1), "Encoded size exceeds the limit of 8 bytes");
+    }
+
+    @Test
+    public void testDecodeLimitsNodes() {
+        byte[] data = "d1:ai1e1:bli1ei2eee".getBytes(StandardCharsets.US_ASCII);
+        assertDecodeSucceeds(data, DecoderConfig.DEFAULT.withMaxNodes(7));
+        assertDecodeFails(data, DecoderConfig.DEFAULT.withMaxNodes(6), "Count of nodes exceeds the limit of 6");
+    }
+
+    @Test
+    public void testDecodeLimitsCollectionSize() {
+        byte[] list = "li0ei0ei0ee".getBytes(StandardCharsets.US_ASCII);
+        assertDecodeSucceeds(list, DecoderConfig.DEFAULT.withMaxCollectionSize(3));
+        assertDecodeFails(list, DecoderConfig.DEFAULT.withMaxCollectionSize(2), "Size of dictionary or list exceeds the limit of 2");
+        byte[] dict = "d1:ai0e1:bi0ee".getBytes(StandardCharsets.US_ASCII);
+        assertDecodeSucceeds(dict, DecoderConfig.DEFAULT.withMaxCollectionSize(2));
+        assertDecodeFails(dict, DecoderConfig.DEFAULT.withMaxCollectionSize(1), "Size of dictionary or list exceeds the limit of 1");
+    }
+
+    @Test
+    public void testDecodeLimitsStringLength() {
+        byte[] data = "d3:keyl5:valueee".getBytes(StandardCharsets.US_ASCII);
+        assertDecodeSucceeds(data, DecoderConfig.DEFAULT.withMaxStringLength(5));
+        assertDecodeFails(data, DecoderConfig.DEFAULT.withMaxStringLength(4), "Denied attempt to read 5 bytes.");
+        assertDecodeFails(data, DecoderConfig.DEFAULT.withMaxStringLength(2), "Denied attempt to read 3 bytes.");
+    }
+
+    @Test
+    public void testDecodeDeepNesting() throws IOException {
+        int depth = 100_000;
+        byte[] data = new byte[depth * 2 + 3];
+        Arrays.fill(data, 0, depth, (byte) 'l');
+        System.arraycopy("i7e".getBytes(StandardCharsets.US_ASCII), 0, data, depth, 3);
+        Arrays.fill(data, depth + 3, data.length, (byte) 'e');
+
+        assertDepth(depth, NodeFactory.decode(data));
+        assertDepth(depth, NodeFactory.decode(toDirect(data)));
+        assertDepth(depth, NodeFactory.decode(new ByteArrayInputStream(data)));
+        // lazy nodes are validated without recursion, but each level is decoded on its own
+        Assertions.assertArrayEquals(data, NodeFactory.encode(NodeFactory.decodeLazy(data)));
+        assertDecodeFails(data, DecoderConfig.DEFAULT.withMaxDepth(depth - 1), "Nesting depth exceeds the limit of " + (depth - 1));
+    }
+
+    @Test
+    public void testDecodeDeepNestingDict() throws IOException {
+        int depth = 100_000;
+        byte[] data = new byte[depth * 5 + 3];
+        for (int i = 0; i < depth; i++) {
+            System.arraycopy("d1:a".getBytes(StandardCharsets.US_ASCII), 0, data, i * 4, 4);
+        }
+        System.arraycopy("i7e".getBytes(StandardCharsets.US_ASCII), 0, data, depth * 4, 3);
+        Arrays.fill(data, depth * 4 + 3, data.length, (byte) 'e');
+
+        assertDepth(depth, NodeFactory.decode(data));
+        assertDepth(depth, NodeFactory.decode(new ByteArrayInputStream(data)));
+        Assertions.assertArrayEquals(data, NodeFactory.encode(NodeFactory.decodeLazy(data)));
+    }
+
+    @Test
+    public void testDecodeReusedFrames() throws IOException {
+        // the frames of a decoder are reused, first for large lists and then for dictionaries, and the other way around
+        StringBuilder sb = new StringBuilder("ll");
+        for (int i = 0; i < 500; i++) {
+            sb.append("i").append(i).append("e");
+        }
+        sb.append("ed1:ai1e1:bi2eeld1:ci3eeee");
+        byte[] data = sb.toString().getBytes(StandardCharsets.US_ASCII);
+
+        BList.Builder numbers = BList.builder(500);
+        for (int i = 0; i < 500; i++) {
+            numbers.add(BInteger.of(i));
+        }
+        BList expected = BList.of(numbers.build(), BDict.of(BString.of("a"), BInteger.of(1), BString.of("b"), BInteger.of(2)),
+            BList.of(BDict.of(BString.of("c"), BInteger.of(3))));
+        Assertions.assertEquals(expected, NodeFactory.decode(data));
+        Assertions.assertEquals(expected, NodeFactory.decode(toDirect(data)));
+        Assertions.assertEquals(expected, NodeFactory.decode(new ByteArrayInputStream(data)));
+    }
+
+    @Test
+    public void testDecodeAll() throws IOException {
+        byte[] torrent = Files.readAllBytes(Paths.get("src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat"));
+        List<byte[]> batch = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            batch.add(i % 100 == 0 ? torrent : ("d5:indexi" + i + "ee").getBytes(StandardCharsets.US_ASCII));
+        }
+        BatchResult result = NodeFactory.decodeAll(batch);
+        Assertions.assertEquals(1000, result.size());
+        Assertions.assertFalse(result.hasErrors());
+        Assertions.assertTrue(result.getErrors().isEmpty());
+        for (int i = 0; i < batch.size(); i++) {
+            Assertions.assertEquals(NodeFactory.decode(batch.get(i)), result.get(i));
+            Assertions.assertNull(result.getError(i));
+        }
+        Assertions.assertEquals("BatchResult{size=1000, errors=0}", result.toString());
+    }
+
+    @Test
+    public void testDecodeAllErrors() {
+        List<byte[]> batch = new LinkedList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add((i % 10 == 3 ? "i" + i : "i" + i + "e").getBytes(StandardCharsets.US_ASCII));
+        }
+        batch.add("d1:bi1e1:ai2ee".getBytes(StandardCharsets.US_ASCII));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        BatchResult result;
+        try {
+            result = NodeFactory.decodeAll(batch, DecoderConfig.STRICT, executor);
+        } finally {
+            executor.shutdown();
+        }
+        Assertions.assertTrue(result.hasErrors());
+        Assertions.assertEquals(Arrays.asList(3, 13, 23, 33, 43, 53, 63, 73, 83, 93, 100), new ArrayList<>(result.getErrors().keySet()));
+        for (int i = 0; i < 100; i++) {
+            if (i % 10 == 3) {
+                Assertions.assertNull(result.get(i));
+                Assertions.assertNotNull(result.getError(i));
+            } else {
+                Assertions.assertEquals(BInteger.of(i), result.get(i));
+            }
+        }
+        Assertions.assertEquals("Dictionary key 'a' is out of order, it follows 'b'", result.getError(100).getMessage());
+    }
+
+    @Test
+    public void testDecodeAllExecutors() {
+        ForkJoinPool pool = new ForkJoinPool(3);
+        List<byte[]> batch = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            batch.add(("i" + i + "e").getBytes(StandardCharsets.US_ASCII));
+        }
+        List<Executor> executors = Arrays.asList(
+            Runnable::run,
+            // the calling thread decodes everything
+            command -> {
+            },
+            command -> {
+                throw new RejectedExecutionException();
+            },
+            pool);
+        try {
+            for (Executor executor : executors) {
+                BatchResult result = NodeFactory.decodeAll(batch, executor);
+                for (int i = 0; i < batch.size(); i++) {
+                    Assertions.assertEquals(BInteger.of(i), result.get(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testDecodeAllEmpty() {
+        Assertions.assertEquals(0, NodeFactory.decodeAll(Collections.emptyList()).size());
+    }
+
+    @Test
+    public void testDecodeAllNull() {
+        Assertions.assertThrows(NullPointerException.class,
+            () -> NodeFactory.decodeAll(Arrays.asList("i1e".getBytes(), null)));
+    }
+
+    static void assertDepth(int depth, BNode<?> node) {
+        for (int i = 0; i < depth; i++) {
+            if (node instanceof BDict) {
+                Assertions.assertEquals(1, ((BDict) node).size());
+                node = ((BDict) node).get("a");
+            } else {
+                Assertions.assertEquals(1, ((BList) node).size());
+                node = ((BList) node).get(0);
+            }
+        }
+        Assertions.assertEquals(BInteger.of(7), node);
+    }
+
+    private static void assertDecodeSucceeds(byte[] data, DecoderConfig config) {
+        BNode<?> expected = NodeFactory.decode(data);
+        Assertions.assertEquals(expected, NodeFactory.decode(data, config));
+        Assertions.assertEquals(expected, NodeFactory.decode(toDirect(data), config));
+        Assertions.assertEquals(expected, new ByteArrayDecoder(data, 0, data.length, true, true, config).decode());
+        Assertions.assertDoesNotThrow(() -> Assertions.assertEquals(expected,
+            NodeFactory.decode(new ByteArrayInputStream(data), config)));
+    }
+
+    private static void assertDecodeFails(byte[] data, DecoderConfig config, String message) {
+        assertMessage(message, Assertions.assertThrows(BencodeException.class,
+            () -> NodeFactory.decode(data, config)));
+        assertMessage(message, Assertions.assertThrows(BencodeException.class,
+            () -> NodeFactory.decode(toDirect(data), config)));
+        assertMessage(message, Assertions.assertThrows(BencodeException.class,
+            () -> NodeFactory.decode(new ByteArrayInputStream(data), config)));
+        // lazy nodes are validated right away
+        assertMessage(message, Assertions.assertThrows(BencodeException.class,
+            () -> new ByteArrayDecoder(data, 0, data.length, true, true, config).decode()));
+    }
+
+    private static void assertMessage(String expected, BencodeException e) {
+        Assertions.assertTrue(e.getMessage().startsWith(expected), e.getMessage());
+    }
+
     @Test
     public void testInstance() throws IllegalAccessException, InvocationTargetException, InstantiationException {
         Constructor<?>[] constructors = NodeFactory.class.getDeclaredConstructors();
@@ -130,4 +797,11 @@ public class NodeFactoryTest {
         constructors[0].setAccessible(true);
         constructors[0].newInstance();
     }
+
+    private static ByteBuffer toDirect(byte[] data) {
+        ByteBuffer result = ByteBuffer.allocateDirect(data.length);
+        result.put(data);
+        result.flip();
+        return result;
+    }
 }
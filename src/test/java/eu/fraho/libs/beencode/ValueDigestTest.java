@@ -0,0 +1,82 @@
+package eu.fraho.libs.beencode;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class ValueDigestTest {
+    private static final String TORRENT = "src/test/resources/data/debian-9.4.0-amd64-DVD-1.iso.torrent.dat";
+
+    @Test
+    public void testTorrent() throws IOException, NoSuchAlgorithmException {
+        byte[] data = Files.readAllBytes(Paths.get(TORRENT));
+        BDict torrent = (BDict) NodeFactory.decode(data);
+        byte[] info = NodeFactory.encode(torrent.get("info"));
+        byte[] sha1 = MessageDigest.getInstance("SHA-1").digest(info);
+        byte[] sha256 = MessageDigest.getInstance("SHA-256").digest(info);
+
+        ValueDigest decoded = ValueDigest.decode(new ByteArrayInputStream(data), "info", "SHA-1", "SHA-256");
+        Assertions.assertEquals(torrent, decoded.getNode());
+        Assertions.assertTrue(decoded.isFound());
+        Assertions.assertArrayEquals(sha1, decoded.getDigest("SHA-1"));
+        Assertions.assertArrayEquals(sha256, decoded.getDigest("SHA-256"));
+
+        ValueDigest digested = ValueDigest.digest(new ByteArrayInputStream(data), "info", "SHA-1", "SHA-256");
+        Assertions.assertNull(digested.getNode());
+        Assertions.assertArrayEquals(sha1, digested.getDigest("SHA-1"));
+        Assertions.assertArrayEquals(sha256, digested.getDigest("SHA-256"));
+
+        ValueDigest array = ValueDigest.decode(data, "info", "SHA-1");
+        Assertions.assertEquals(torrent, array.getNode());
+        Assertions.assertArrayEquals(sha1, array.getDigest("SHA-1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> array.getDigest("SHA-256"));
+    }
+
+    @Test
+    public void testOriginalBytes() throws IOException, NoSuchAlgorithmException {
+        // duplicate keys are dropped when decoding, so encoding the value again would give different bytes
+        byte[] data = "d4:infod1:ai1e1:ai2ee3:zzzi5ee".getBytes();
+        byte[] expected = MessageDigest.getInstance("SHA-1").digest("d1:ai1e1:ai2ee".getBytes());
+
+        Assertions.assertArrayEquals(expected, ValueDigest.decode(new ByteArrayInputStream(data), "info", "SHA-1").getDigest("SHA-1"));
+        Assertions.assertArrayEquals(expected, ValueDigest.digest(new ByteArrayInputStream(data), "info", "SHA-1").getDigest("SHA-1"));
+        Assertions.assertArrayEquals(expected, ValueDigest.decode(data, "info", "SHA-1").getDigest("SHA-1"));
+    }
+
+    @Test
+    public void testScalarValues() throws IOException, NoSuchAlgorithmException {
+        byte[] data = "d1:a5:hello1:bi-42e1:cl4:testee".getBytes();
+        for (String[] entry : new String[][]{{"a", "5:hello"}, {"b", "i-42e"}, {"c", "l4:teste"}}) {
+            byte[] expected = MessageDigest.getInstance("SHA-256").digest(entry[1].getBytes());
+            Assertions.assertArrayEquals(expected, ValueDigest.decode(new ByteArrayInputStream(data), entry[0], "SHA-256").getDigest("SHA-256"));
+            Assertions.assertArrayEquals(expected, ValueDigest.digest(new ByteArrayInputStream(data), entry[0], "SHA-256").getDigest("SHA-256"));
+            Assertions.assertArrayEquals(expected, ValueDigest.decode(data, entry[0], "SHA-256").getDigest("SHA-256"));
+        }
+    }
+
+    @Test
+    public void testNotFound() throws IOException {
+        byte[] data = "d3:fooi1ee".getBytes();
+        ValueDigest result = ValueDigest.decode(new ByteArrayInputStream(data), "info", "SHA-1");
+        Assertions.assertFalse(result.isFound());
+        Assertions.assertNull(result.getDigest("SHA-1"));
+        Assertions.assertEquals(BDict.of(BString.of("foo"), BInteger.of(1)), result.getNode());
+        Assertions.assertFalse(ValueDigest.digest(new ByteArrayInputStream(data), "info", "SHA-1").isFound());
+        Assertions.assertFalse(ValueDigest.decode(data, "info", "SHA-1").isFound());
+    }
+
+    @Test
+    public void testInvalid() {
+        byte[] data = "l4:infoe".getBytes();
+        Assertions.assertThrows(BencodeException.class, () -> ValueDigest.decode(new ByteArrayInputStream(data), "info", "SHA-1"));
+        Assertions.assertThrows(BencodeException.class, () -> ValueDigest.digest(new ByteArrayInputStream(data), "info", "SHA-1"));
+        Assertions.assertThrows(BencodeException.class, () -> ValueDigest.decode(data, "info", "SHA-1"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ValueDigest.decode("de".getBytes(), "info", "NOPE"));
+    }
+}
@@ -26,6 +26,10 @@ public class ReadmeConvert {
         // Get the beencoded representation
         byte[] encoded = NodeFactory.encode(node); // l5:Hello6:world!i42ee
 
+        // Get the canonical beencoded representation, with the keys of all dictionaries sorted,
+        // for example to compute a hash or signature
+        byte[] canonical = NodeFactory.encodeCanonical(node);
+
         // And back again to a node
         BNode<?> back = NodeFactory.decode(encoded);
     }
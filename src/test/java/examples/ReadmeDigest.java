@@ -0,0 +1,19 @@
+package examples;
+
+import eu.fraho.libs.beencode.ValueDigest;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+public class ReadmeDigest {
+    public byte[] infoHash() throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(new File("test.torrent").toPath()))) {
+            // the original bytes of the info dictionary are hashed while reading, nothing is encoded again
+            ValueDigest result = ValueDigest.digest(is, "info", "SHA-1");
+            return result.getDigest("SHA-1");
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2023 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package examples;
+
+import eu.fraho.libs.beencode.BNode;
+import eu.fraho.libs.beencode.BString;
+import eu.fraho.libs.beencode.BencodeParser;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+public class ReadmeParse {
+    public BNode<?> parse() throws IOException {
+        BString announce = BString.of("announce");
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(new File("test.torrent").toPath()))) {
+            BencodeParser parser = BencodeParser.of(is);
+            parser.next(); // START_DICT
+            while (parser.next() == BencodeParser.Event.KEY) {
+                if (parser.getString().equals(announce)) {
+                    // read the value of the current key as node
+                    return parser.readValue();
+                }
+                // skip the value of the current key, without reading it into memory
+                parser.skipValue();
+            }
+        }
+        return null;
+    }
+}
@@ -9,6 +9,7 @@ package examples;
 import eu.fraho.libs.beencode.BDict;
 import eu.fraho.libs.beencode.BNode;
 import eu.fraho.libs.beencode.BString;
+import eu.fraho.libs.beencode.BencodeReader;
 import eu.fraho.libs.beencode.NodeFactory;
 
 import java.io.File;
@@ -34,5 +35,13 @@ public class ReadmeRead {
         try (InputStream is = Files.newInputStream(new File("test.dat").toPath())) {
             BNode<?> node = NodeFactory.decode(is);
         }
+
+        // Large files can be mapped into memory, big strings are only copied to the heap when accessed.
+        BNode<?> mapped = NodeFactory.decode(new File("test.dat").toPath());
+
+        // If the file contains many elements back-to-back, like a log file
+        try (BencodeReader reader = new BencodeReader(Files.newInputStream(new File("test.dat").toPath()))) {
+            reader.stream().forEach(System.out::println);
+        }
     }
 }
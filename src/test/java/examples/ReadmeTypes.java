@@ -54,5 +54,11 @@ public class ReadmeTypes {
 
         // when using a regular string for get(), the type can be inferred (if you know what type the element has)
         BInteger dictEntry3 = firstdict.get("lorem"); // BInteger(2147483648)
+
+        // assemble larger dictionaries and lists step by step, without copying them on each step:
+        BDict built = BDict.builder(2)
+            .put("interval", BInteger.of(1800))
+            .put(lorem, BList.builder().add(ipsum).build())
+            .build();                                 // {interval=1800, lorem=[ipsum]}
     }
 }
@@ -9,6 +9,7 @@ package examples;
 import eu.fraho.libs.beencode.BInteger;
 import eu.fraho.libs.beencode.BList;
 import eu.fraho.libs.beencode.BString;
+import eu.fraho.libs.beencode.BencodeWriter;
 import eu.fraho.libs.beencode.NodeFactory;
 
 import java.io.File;
@@ -32,5 +33,10 @@ public class ReadmeWrite {
             // another way
             NodeFactory.encode(node, os);
         }
+
+        // Write through a buffer, which is passed to the file in large blocks
+        try (BencodeWriter writer = new BencodeWriter(Files.newOutputStream(new File("test.dat").toPath()))) {
+            writer.write(node);
+        }
     }
 }